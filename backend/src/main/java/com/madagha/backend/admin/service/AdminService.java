@@ -3,16 +3,20 @@ package com.madagha.backend.admin.service;
 import com.madagha.backend.admin.dto.PostAdminDto;
 import com.madagha.backend.admin.dto.UserAdminDto;
 import com.madagha.backend.comment.repository.CommentRepository;
+import com.madagha.backend.common.transaction.AfterCommit;
 import com.madagha.backend.like.repository.LikeRepository;
-import com.madagha.backend.media.repository.MediaRepository;
-import com.madagha.backend.notification.repository.NotificationRepository;
+import com.madagha.backend.media.service.MediaService;
+import com.madagha.backend.notification.service.NotificationService;
 import com.madagha.backend.post.entity.Post;
 import com.madagha.backend.post.repository.PostRepository;
+import com.madagha.backend.post.service.PostCounterService;
+import com.madagha.backend.post.service.TimelineService;
 import com.madagha.backend.report.dto.ReportDto;
 import com.madagha.backend.report.entity.Report;
 import com.madagha.backend.report.entity.ReportStatus;
 import com.madagha.backend.report.repository.ReportRepository;
 import com.madagha.backend.subscription.repository.SubscriptionRepository;
+import com.madagha.backend.subscription.service.SocialGraphIndex;
 import com.madagha.backend.user.entity.User;
 import com.madagha.backend.user.entity.UserStatus;
 import com.madagha.backend.user.repository.UserRepository;
@@ -36,9 +40,12 @@ public class AdminService {
     private final ReportRepository reportRepository;
     private final LikeRepository likeRepository;
     private final CommentRepository commentRepository;
-    private final MediaRepository mediaRepository;
+    private final MediaService mediaService;
     private final SubscriptionRepository subscriptionRepository;
-    private final NotificationRepository notificationRepository;
+    private final NotificationService notificationService;
+    private final TimelineService timelineService;
+    private final SocialGraphIndex socialGraphIndex;
+    private final PostCounterService postCounterService;
 
     // User Management
     public Page<UserAdminDto> getAllUsers(Pageable pageable) {
@@ -75,25 +82,37 @@ public class AdminService {
 
         List<Post> userPosts = postRepository.findByOwnerId(userId);
 
+        // Drop the user's own timeline and every fanned-out copy of their posts
+        timelineService.onUserDeleted(userId);
+
         // Remove child records for user's posts
         userPosts.forEach(post -> {
             UUID postId = post.getId();
-            mediaRepository.deleteByPostId(postId);
+            mediaService.deleteMediaForPost(postId);
             likeRepository.deleteByPostId(postId);
             commentRepository.deleteByPostId(postId);
+            timelineService.onPostDeleted(postId);
+            postCounterService.discard(postId);
         });
 
         // Delete posts after cleanup
         postRepository.deleteAll(userPosts);
 
-        // Remove user interactions on other posts
+        // Remove user interactions on other posts and take them off the counters
+        likeRepository.countGroupedByPostIdForUser(userId)
+                .forEach(row -> postCounterService.recordLike((UUID) row[0], -(Long) row[1]));
+        commentRepository.countGroupedByPostIdForUser(userId)
+                .forEach(row -> postCounterService.recordComment((UUID) row[0], -(Long) row[1]));
         likeRepository.deleteByUserId(userId);
         commentRepository.deleteByUserId(userId);
 
-        // Remove subscriptions and notifications
+        // Remove subscriptions and notifications, taking them off the other side's counts
+        userRepository.decrementFollowingOfFollowers(userId);
+        userRepository.decrementFollowersOfFollowed(userId);
         subscriptionRepository.deleteBySubscriberId(userId);
         subscriptionRepository.deleteBySubscribedToId(userId);
-        notificationRepository.deleteByUserId(userId);
+        AfterCommit.run(() -> socialGraphIndex.removeUser(userId));
+        notificationService.deleteAllForUser(userId);
 
         // Remove reports tied to this user
         reportRepository.deleteByReportedUserId(userId);
@@ -131,9 +150,11 @@ public class AdminService {
                 .orElseThrow(() -> new RuntimeException("Post not found"));
 
         // Delete associated media, likes, and comments for the post
-        mediaRepository.deleteByPostId(postId);
+        mediaService.deleteMediaForPost(postId);
         likeRepository.deleteByPostId(postId);
         commentRepository.deleteByPostId(postId);
+        timelineService.onPostDeleted(postId);
+        postCounterService.discard(postId);
 
         postRepository.delete(post);
     }
@@ -221,8 +242,8 @@ public class AdminService {
                         .avatar(post.getOwner().getAvatar())
                         .build())
                 .mediaUrls(postRepository.findMediaUrlsByPostId(post.getId()))
-                .likeCount(likeRepository.countByPostId(post.getId()))
-                .commentCount(commentRepository.countByPostId(post.getId()))
+                .likeCount(postCounterService.getLikeCount(post))
+                .commentCount(postCounterService.getCommentCount(post))
                 .createdAt(post.getCreatedAt())
                 .updatedAt(post.getUpdatedAt())
                 .hidden(post.isHidden())
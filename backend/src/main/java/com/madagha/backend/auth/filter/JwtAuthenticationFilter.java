@@ -23,6 +23,8 @@ import java.io.IOException;
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    private static final String STREAM_PATH = "/api/notifications/stream";
+
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
 
@@ -33,16 +35,28 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             @NonNull FilterChain filterChain) throws ServletException, IOException {
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
+        final boolean ticket;
         final String username;
 
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            jwt = authHeader.substring(7);
+            ticket = false;
+        } else if (STREAM_PATH.equals(request.getRequestURI()) && request.getParameter("ticket") != null) {
+            // EventSource cannot set headers, so the notification stream takes a stream ticket as a parameter
+            jwt = request.getParameter("ticket");
+            ticket = true;
+        } else {
             filterChain.doFilter(request, response);
             return;
         }
 
-        jwt = authHeader.substring(7);
         try {
             username = jwtService.extractUsername(jwt);
+            // A ticket only opens the stream, and a login token is never accepted in the URL
+            if (jwtService.isStreamTicket(jwt) != ticket) {
+                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                return;
+            }
         } catch (JwtException | IllegalArgumentException e) {
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
             return;
@@ -19,12 +19,18 @@ import java.util.function.Function;
 @Service
 public class JwtService {
 
+    private static final String PURPOSE_CLAIM = "purpose";
+    private static final String STREAM_PURPOSE = "stream";
+
     @Value("${app.jwt.secret}")
     private String secretKey;
 
     @Value("${app.jwt.expiration}")
     private long jwtExpiration;
 
+    @Value("${app.jwt.stream-ticket-expiration:60000}")
+    private long streamTicketExpiration;
+
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
@@ -45,6 +51,19 @@ public class JwtService {
         return buildToken(extraClaims, userDetails, jwtExpiration);
     }
 
+    /**
+     * A short-lived token that only opens the notification stream. EventSource
+     * cannot send headers, so this travels in the URL where proxies and
+     * browser history keep it; the login token must never go there.
+     */
+    public String generateStreamTicket(UserDetails userDetails) {
+        return buildToken(Map.of(PURPOSE_CLAIM, STREAM_PURPOSE), userDetails, streamTicketExpiration);
+    }
+
+    public boolean isStreamTicket(String token) {
+        return STREAM_PURPOSE.equals(extractClaim(token, claims -> claims.get(PURPOSE_CLAIM, String.class)));
+    }
+
     private String buildToken(
             Map<String, Object> extraClaims,
             UserDetails userDetails,
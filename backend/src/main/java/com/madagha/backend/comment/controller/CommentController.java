@@ -3,6 +3,7 @@ package com.madagha.backend.comment.controller;
 import com.madagha.backend.comment.dto.CommentRequest;
 import com.madagha.backend.comment.dto.CommentResponse;
 import com.madagha.backend.comment.service.CommentService;
+import com.madagha.backend.common.pagination.CursorPage;
 import com.madagha.backend.user.entity.User;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -41,6 +42,15 @@ public class CommentController {
         return ResponseEntity.ok(comments);
     }
 
+    @GetMapping(value = "/posts/{postId}/comments", params = "cursor")
+    public ResponseEntity<CursorPage<CommentResponse>> getCommentsSlice(
+            @PathVariable UUID postId,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        CursorPage<CommentResponse> comments = commentService.getCommentsByPost(postId, cursor, size);
+        return ResponseEntity.ok(comments);
+    }
+
     @GetMapping("/comments/user/{userId}")
     public ResponseEntity<Page<CommentResponse>> getUserComments(
             @PathVariable UUID userId,
@@ -49,6 +59,15 @@ public class CommentController {
         return ResponseEntity.ok(comments);
     }
 
+    @GetMapping(value = "/comments/user/{userId}", params = "cursor")
+    public ResponseEntity<CursorPage<CommentResponse>> getUserCommentsSlice(
+            @PathVariable UUID userId,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        CursorPage<CommentResponse> comments = commentService.getCommentsByUser(userId, cursor, size);
+        return ResponseEntity.ok(comments);
+    }
+
     @PutMapping("/posts/{postId}/comments/{commentId}")
     public ResponseEntity<CommentResponse> updateComment(
             @PathVariable UUID postId,
@@ -15,7 +15,10 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "comments")
+@Table(name = "comments", indexes = {
+        @Index(name = "idx_comments_post_created", columnList = "post_id, created_at DESC, id DESC"),
+        @Index(name = "idx_comments_user_created", columnList = "user_id, created_at DESC, id DESC")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -5,8 +5,12 @@ import com.madagha.backend.post.entity.Post;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
@@ -16,6 +20,20 @@ public interface CommentRepository extends JpaRepository<Comment, UUID> {
 
     Page<Comment> findByUserIdOrderByCreatedAtDesc(UUID userId, Pageable pageable);
 
+    @Query("SELECT c FROM Comment c WHERE c.post = :post AND (c.createdAt < :createdAt OR (c.createdAt = :createdAt AND c.id < :id)) ORDER BY c.createdAt DESC, c.id DESC")
+    List<Comment> findByPostBefore(
+            @Param("post") Post post,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") UUID id,
+            Pageable pageable);
+
+    @Query("SELECT c FROM Comment c WHERE c.user.id = :userId AND (c.createdAt < :createdAt OR (c.createdAt = :createdAt AND c.id < :id)) ORDER BY c.createdAt DESC, c.id DESC")
+    List<Comment> findByUserIdBefore(
+            @Param("userId") UUID userId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") UUID id,
+            Pageable pageable);
+
     long countByPost(Post post);
 
     void deleteByPostId(UUID postId);
@@ -25,4 +43,9 @@ public interface CommentRepository extends JpaRepository<Comment, UUID> {
     void deleteByUserId(UUID userId);
 
     long countByPostId(UUID postId);
+
+    boolean existsByPostIdAndUserId(UUID postId, UUID userId);
+
+    @Query("SELECT c.post.id, COUNT(c) FROM Comment c WHERE c.user.id = :userId GROUP BY c.post.id")
+    List<Object[]> countGroupedByPostIdForUser(@Param("userId") UUID userId);
 }
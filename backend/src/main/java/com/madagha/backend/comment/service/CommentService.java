@@ -4,10 +4,13 @@ import com.madagha.backend.comment.dto.CommentRequest;
 import com.madagha.backend.comment.dto.CommentResponse;
 import com.madagha.backend.comment.entity.Comment;
 import com.madagha.backend.comment.repository.CommentRepository;
+import com.madagha.backend.common.pagination.Cursor;
+import com.madagha.backend.common.pagination.CursorPage;
 import com.madagha.backend.notification.entity.Notification;
 import com.madagha.backend.notification.service.NotificationService;
 import com.madagha.backend.post.entity.Post;
 import com.madagha.backend.post.repository.PostRepository;
+import com.madagha.backend.post.service.PostCounterService;
 import com.madagha.backend.user.entity.User;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
@@ -15,6 +18,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.UUID;
 
 @Service
@@ -24,6 +28,7 @@ public class CommentService {
     private final CommentRepository commentRepository;
     private final PostRepository postRepository;
     private final NotificationService notificationService;
+    private final PostCounterService postCounterService;
 
     @Transactional
     public CommentResponse createComment(UUID postId, CommentRequest request, User user) {
@@ -37,14 +42,16 @@ public class CommentService {
                 .build();
 
         comment = commentRepository.save(comment);
+        postCounterService.recordComment(postId, 1);
 
         // Create notification for post owner (if not self-comment)
         if (!post.getOwner().getId().equals(user.getId())) {
-            notificationService.createNotification(
+            notificationService.recordActivity(
                     post.getOwner(),
                     Notification.NotificationType.COMMENT,
-                    user.getUsername() + " commented on your post: " + post.getTitle(),
-                    postId);
+                    postId,
+                    user,
+                    post.getTitle());
         }
 
         return mapToResponse(comment);
@@ -63,10 +70,27 @@ public class CommentService {
                 .map(this::mapToResponse);
     }
 
+    public CursorPage<CommentResponse> getCommentsByPost(UUID postId, String cursor, int size) {
+        Post post = postRepository.findById(postId)
+                .orElseThrow(() -> new RuntimeException("Post not found"));
+
+        Cursor position = Cursor.decode(cursor);
+        List<Comment> comments = commentRepository.findByPostBefore(
+                post, position.getCreatedAt(), position.getId(), Cursor.probe(size));
+        return CursorPage.map(comments, size, this::positionOf, this::mapToResponse);
+    }
+
+    public CursorPage<CommentResponse> getCommentsByUser(UUID userId, String cursor, int size) {
+        Cursor position = Cursor.decode(cursor);
+        List<Comment> comments = commentRepository.findByUserIdBefore(
+                userId, position.getCreatedAt(), position.getId(), Cursor.probe(size));
+        return CursorPage.map(comments, size, this::positionOf, this::mapToResponse);
+    }
+
     public long getCommentCount(UUID postId) {
         Post post = postRepository.findById(postId)
                 .orElseThrow(() -> new RuntimeException("Post not found"));
-        return commentRepository.countByPost(post);
+        return postCounterService.getCommentCount(post);
     }
 
     @Transactional
@@ -94,15 +118,24 @@ public class CommentService {
         }
 
         commentRepository.delete(comment);
+        postCounterService.recordComment(comment.getPost().getId(), -1);
 
-        if (!comment.getPost().getOwner().getId().equals(user.getId())) {
-            notificationService.deleteLatestNotification(
+        // The group counts commenters, not comments: stay in it while another comment is left
+        if (!comment.getPost().getOwner().getId().equals(user.getId())
+                && !commentRepository.existsByPostIdAndUserId(comment.getPost().getId(), user.getId())) {
+            notificationService.retractActivity(
                     comment.getPost().getOwner(),
                     Notification.NotificationType.COMMENT,
-                    comment.getPost().getId());
+                    comment.getPost().getId(),
+                    user,
+                    comment.getPost().getTitle());
         }
     }
 
+    private Cursor positionOf(Comment comment) {
+        return new Cursor(comment.getCreatedAt(), comment.getId());
+    }
+
     private CommentResponse mapToResponse(Comment comment) {
         return CommentResponse.builder()
                 .id(comment.getId())
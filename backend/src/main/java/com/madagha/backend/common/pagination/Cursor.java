@@ -0,0 +1,67 @@
+package com.madagha.backend.common.pagination;
+
+import com.madagha.backend.common.exception.BadRequestException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Opaque keyset position (createdAt, id) for newest-first lists. Queries read
+ * rows strictly older than the cursor, so no OFFSET scan or COUNT is needed.
+ */
+@Getter
+@AllArgsConstructor
+public class Cursor {
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final Cursor START = new Cursor(
+            LocalDateTime.of(9999, 12, 31, 23, 59, 59),
+            new UUID(-1L, -1L));
+
+    private final LocalDateTime createdAt;
+    private final UUID id;
+
+    /**
+     * Decodes a client supplied cursor. A missing or blank value starts from
+     * the newest row.
+     */
+    public static Cursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return START;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new Cursor(
+                    LocalDateTime.parse(raw.substring(0, separator)),
+                    UUID.fromString(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException ex) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static int clampSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * Page request for one slice: one extra row is fetched to learn whether
+     * another slice follows.
+     */
+    public static Pageable probe(int size) {
+        return PageRequest.of(0, clampSize(size) + 1);
+    }
+}
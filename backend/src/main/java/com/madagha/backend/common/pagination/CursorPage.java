@@ -0,0 +1,42 @@
+package com.madagha.backend.common.pagination;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * One slice of a keyset-paginated list. Carries the cursor for the next slice
+ * instead of page numbers and a total count.
+ */
+@Data
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> content;
+    private String nextCursor;
+    private boolean hasNext;
+    private int size;
+
+    public static <T> CursorPage<T> empty(int size) {
+        return new CursorPage<>(List.of(), null, false, Cursor.clampSize(size));
+    }
+
+    /**
+     * Builds a slice from rows fetched with {@link Cursor#probe(int)}.
+     */
+    public static <E, T> CursorPage<T> of(List<E> rows, int size, Function<E, Cursor> position,
+            Function<List<E>, List<T>> mapper) {
+        int limit = Cursor.clampSize(size);
+        boolean hasNext = rows.size() > limit;
+        List<E> slice = hasNext ? rows.subList(0, limit) : rows;
+        String nextCursor = hasNext ? position.apply(slice.get(slice.size() - 1)).encode() : null;
+        return new CursorPage<>(mapper.apply(slice), nextCursor, hasNext, limit);
+    }
+
+    public static <E, T> CursorPage<T> map(List<E> rows, int size, Function<E, Cursor> position,
+            Function<E, T> mapper) {
+        return of(rows, size, position, slice -> slice.stream().map(mapper).collect(Collectors.toList()));
+    }
+}
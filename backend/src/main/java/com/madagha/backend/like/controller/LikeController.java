@@ -1,42 +1,50 @@
 package com.madagha.backend.like.controller;
 
 import com.madagha.backend.like.dto.LikeResponse;
+import com.madagha.backend.like.dto.LikeStatusRequest;
 import com.madagha.backend.like.service.LikeService;
 import com.madagha.backend.user.entity.User;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @RestController
-@RequestMapping("/api/posts/{postId}/likes")
+@RequestMapping("/api")
 @RequiredArgsConstructor
 public class LikeController {
 
     private final LikeService likeService;
 
-    @PostMapping
+    @PostMapping("/posts/{postId}/likes")
     public ResponseEntity<?> toggleLike(
             @PathVariable UUID postId,
             @AuthenticationPrincipal User user) {
-        LikeResponse response = likeService.toggleLike(postId, user);
+        return likeResult(likeService.toggleLike(postId, user));
+    }
 
-        Map<String, Object> result = new HashMap<>();
-        result.put("liked", response != null);
-        result.put("likeCount", likeService.getLikeCount(postId));
-        if (response != null) {
-            result.put("like", response);
-        }
+    @PutMapping("/posts/{postId}/likes")
+    public ResponseEntity<?> like(
+            @PathVariable UUID postId,
+            @AuthenticationPrincipal User user) {
+        return likeResult(likeService.like(postId, user));
+    }
 
-        System.out.println(likeService.getLikeCount(postId));
-        return ResponseEntity.ok(result);
+    @DeleteMapping("/posts/{postId}/likes")
+    public ResponseEntity<?> unlike(
+            @PathVariable UUID postId,
+            @AuthenticationPrincipal User user) {
+        return likeResult(likeService.unlike(postId, user));
     }
 
-    @GetMapping("/status")
+    @GetMapping("/posts/{postId}/likes/status")
     public ResponseEntity<?> getLikeStatus(
             @PathVariable UUID postId,
             @AuthenticationPrincipal User user) {
@@ -46,4 +54,23 @@ public class LikeController {
 
         return ResponseEntity.ok(result);
     }
+
+    @PostMapping("/likes/status")
+    public ResponseEntity<Map<UUID, Boolean>> getLikeStatuses(
+            @Valid @RequestBody LikeStatusRequest request,
+            @AuthenticationPrincipal User user) {
+        Set<UUID> liked = likeService.getLikedPostIds(request.getPostIds(), user);
+
+        Map<UUID, Boolean> result = new LinkedHashMap<>();
+        request.getPostIds().forEach(postId -> result.put(postId, liked.contains(postId)));
+        return ResponseEntity.ok(result);
+    }
+
+    private ResponseEntity<?> likeResult(LikeResponse response) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("liked", response.isLiked());
+        result.put("likeCount", response.getLikeCount());
+        result.put("like", response);
+        return ResponseEntity.ok(result);
+    }
 }
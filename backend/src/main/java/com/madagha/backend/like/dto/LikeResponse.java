@@ -19,4 +19,5 @@ public class LikeResponse {
     private UUID postId;
     private LocalDateTime createdAt;
     private boolean liked; // true if liked, false if unliked
+    private long likeCount;
 }
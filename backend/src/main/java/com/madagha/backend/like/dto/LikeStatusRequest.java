@@ -0,0 +1,20 @@
+package com.madagha.backend.like.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LikeStatusRequest {
+
+    @NotEmpty(message = "Post ids are required")
+    @Size(max = 100, message = "At most 100 post ids can be checked at once")
+    private List<UUID> postIds;
+}
@@ -4,8 +4,13 @@ import com.madagha.backend.like.entity.Like;
 import com.madagha.backend.post.entity.Post;
 import com.madagha.backend.user.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -27,4 +32,62 @@ public interface LikeRepository extends JpaRepository<Like, UUID> {
     void deleteByUserId(UUID userId);
 
     long countByPostId(UUID postId);
+
+    @Query("SELECT l.post.id FROM Like l WHERE l.user.id = :userId AND l.post.id IN :postIds")
+    List<UUID> findLikedPostIds(@Param("userId") UUID userId, @Param("postIds") Collection<UUID> postIds);
+
+    @Query("SELECT l.post.id, COUNT(l) FROM Like l WHERE l.user.id = :userId GROUP BY l.post.id")
+    List<Object[]> countGroupedByPostIdForUser(@Param("userId") UUID userId);
+
+    // The statements below change like state in a single round trip and return no row when the post does not exist
+
+    @Query(value = "WITH target AS (SELECT p.id, p.owner_id, p.title, p.like_count, u.notifications_read_through "
+            + "FROM posts p JOIN users u ON u.id = p.owner_id WHERE p.id = :postId), "
+            + "removed AS (DELETE FROM likes l USING target t WHERE l.post_id = t.id AND l.user_id = :userId RETURNING l.id), "
+            + "added AS (INSERT INTO likes (id, user_id, post_id, created_at) "
+            + "SELECT gen_random_uuid(), :userId, t.id, :createdAt FROM target t WHERE NOT EXISTS (SELECT 1 FROM removed) "
+            + "ON CONFLICT (user_id, post_id) DO NOTHING RETURNING id) "
+            + "SELECT t.owner_id AS \"ownerId\", t.notifications_read_through AS \"ownerReadThrough\", "
+            + "t.title AS \"title\", t.like_count AS \"likeCount\", "
+            + "(SELECT COUNT(*) FROM added) - (SELECT COUNT(*) FROM removed) AS \"delta\" FROM target t", nativeQuery = true)
+    Optional<LikeChange> toggle(
+            @Param("userId") UUID userId,
+            @Param("postId") UUID postId,
+            @Param("createdAt") LocalDateTime createdAt);
+
+    @Query(value = "WITH target AS (SELECT p.id, p.owner_id, p.title, p.like_count, u.notifications_read_through "
+            + "FROM posts p JOIN users u ON u.id = p.owner_id WHERE p.id = :postId), "
+            + "added AS (INSERT INTO likes (id, user_id, post_id, created_at) "
+            + "SELECT gen_random_uuid(), :userId, t.id, :createdAt FROM target t "
+            + "ON CONFLICT (user_id, post_id) DO NOTHING RETURNING id) "
+            + "SELECT t.owner_id AS \"ownerId\", t.notifications_read_through AS \"ownerReadThrough\", "
+            + "t.title AS \"title\", t.like_count AS \"likeCount\", "
+            + "(SELECT COUNT(*) FROM added) AS \"delta\" FROM target t", nativeQuery = true)
+    Optional<LikeChange> insertIfAbsent(
+            @Param("userId") UUID userId,
+            @Param("postId") UUID postId,
+            @Param("createdAt") LocalDateTime createdAt);
+
+    @Query(value = "WITH target AS (SELECT p.id, p.owner_id, p.title, p.like_count, u.notifications_read_through "
+            + "FROM posts p JOIN users u ON u.id = p.owner_id WHERE p.id = :postId), "
+            + "removed AS (DELETE FROM likes l USING target t WHERE l.post_id = t.id AND l.user_id = :userId RETURNING l.id) "
+            + "SELECT t.owner_id AS \"ownerId\", t.notifications_read_through AS \"ownerReadThrough\", "
+            + "t.title AS \"title\", t.like_count AS \"likeCount\", "
+            + "-(SELECT COUNT(*) FROM removed) AS \"delta\" FROM target t", nativeQuery = true)
+    Optional<LikeChange> deleteIfPresent(@Param("userId") UUID userId, @Param("postId") UUID postId);
+
+    interface LikeChange {
+        UUID getOwnerId();
+
+        /** The owner's notification watermark, so notifying them needs no user lookup. */
+        LocalDateTime getOwnerReadThrough();
+
+        String getTitle();
+
+        /** The stored count, before this change and any buffered deltas. */
+        Long getLikeCount();
+
+        /** +1 when a like was added, -1 when one was removed, 0 when nothing changed. */
+        Long getDelta();
+    }
 }
@@ -2,17 +2,21 @@ package com.madagha.backend.like.service;
 
 import com.madagha.backend.common.exception.ResourceNotFoundException;
 import com.madagha.backend.like.dto.LikeResponse;
-import com.madagha.backend.like.entity.Like;
 import com.madagha.backend.like.repository.LikeRepository;
 import com.madagha.backend.notification.entity.Notification;
 import com.madagha.backend.notification.service.NotificationService;
 import com.madagha.backend.post.entity.Post;
 import com.madagha.backend.post.repository.PostRepository;
+import com.madagha.backend.post.service.PostCounterService;
 import com.madagha.backend.user.entity.User;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -22,47 +26,31 @@ public class LikeService {
     private final LikeRepository likeRepository;
     private final PostRepository postRepository;
     private final NotificationService notificationService;
+    private final PostCounterService postCounterService;
 
+    /**
+     * Flips the like in one statement. A toggle that loses a race against a
+     * concurrent like of the same post reports the post as liked.
+     */
     @Transactional
     public LikeResponse toggleLike(UUID postId, User user) {
-        Post post = postRepository.findById(postId)
+        LikeRepository.LikeChange change = likeRepository.toggle(user.getId(), postId, LocalDateTime.now())
                 .orElseThrow(() -> new ResourceNotFoundException("Post not found"));
+        return apply(postId, user, change, change.getDelta() >= 0);
+    }
 
-        var existingLike = likeRepository.findByUserAndPost(user, post);
-
-        if (existingLike.isPresent()) {
-            likeRepository.delete(existingLike.get());
-            if (!post.getOwner().getId().equals(user.getId())) {
-                notificationService.deleteLatestNotification(
-                        post.getOwner(),
-                        Notification.NotificationType.LIKE,
-                        postId);
-            }
-            // Return response indicating the post is no longer liked
-            return LikeResponse.builder()
-                    .userId(user.getId())
-                    .username(user.getUsername())
-                    .postId(postId)
-                    .liked(false)
-                    .build();
-        } else {
-            Like like = Like.builder()
-                    .user(user)
-                    .post(post)
-                    .build();
-
-            like = likeRepository.save(like);
-
-            if (!post.getOwner().getId().equals(user.getId())) {
-                notificationService.createNotification(
-                        post.getOwner(),
-                        Notification.NotificationType.LIKE,
-                        user.getUsername() + " liked your post: " + post.getTitle(),
-                        postId);
-            }
+    @Transactional
+    public LikeResponse like(UUID postId, User user) {
+        LikeRepository.LikeChange change = likeRepository.insertIfAbsent(user.getId(), postId, LocalDateTime.now())
+                .orElseThrow(() -> new ResourceNotFoundException("Post not found"));
+        return apply(postId, user, change, true);
+    }
 
-            return mapToResponse(like);
-        }
+    @Transactional
+    public LikeResponse unlike(UUID postId, User user) {
+        LikeRepository.LikeChange change = likeRepository.deleteIfPresent(user.getId(), postId)
+                .orElseThrow(() -> new ResourceNotFoundException("Post not found"));
+        return apply(postId, user, change, false);
     }
 
     public boolean hasUserLikedPost(UUID postId, User user) {
@@ -71,19 +59,40 @@ public class LikeService {
         return likeRepository.existsByUserAndPost(user, post);
     }
 
+    public Set<UUID> getLikedPostIds(Collection<UUID> postIds, User user) {
+        return new HashSet<>(likeRepository.findLikedPostIds(user.getId(), postIds));
+    }
+
     public long getLikeCount(UUID postId) {
         Post post = postRepository.findById(postId)
                 .orElseThrow(() -> new RuntimeException("Post not found"));
-        return likeRepository.countByPost(post);
+        return postCounterService.getLikeCount(post);
     }
 
-    private LikeResponse mapToResponse(Like like) {
+    // Everything here comes from the change statement's row; the post and its owner are not loaded
+    private LikeResponse apply(UUID postId, User user, LikeRepository.LikeChange change, boolean liked) {
+        long delta = change.getDelta();
+        // Buffered deltas so far, plus this one, which only joins them after commit
+        long likeCount = postCounterService.getLikeCount(postId, change.getLikeCount()) + delta;
+        if (delta != 0) {
+            postCounterService.recordLike(postId, delta);
+            if (!change.getOwnerId().equals(user.getId())) {
+                if (delta > 0) {
+                    notificationService.recordActivity(change.getOwnerId(), change.getOwnerReadThrough(),
+                            Notification.NotificationType.LIKE, postId, user, change.getTitle());
+                } else {
+                    notificationService.retractActivity(change.getOwnerId(), change.getOwnerReadThrough(),
+                            Notification.NotificationType.LIKE, postId, user, change.getTitle());
+                }
+            }
+        }
+
         return LikeResponse.builder()
-                .id(like.getId())
-                .userId(like.getUser().getId())
-                .username(like.getUser().getUsername())
-                .postId(like.getPost().getId())
-                .createdAt(like.getCreatedAt())
+                .userId(user.getId())
+                .username(user.getUsername())
+                .postId(postId)
+                .liked(liked)
+                .likeCount(likeCount)
                 .build();
     }
 }
@@ -0,0 +1,43 @@
+package com.madagha.backend.media.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class MediaExecutorConfig {
+
+    // Decoding is memory heavy, so keep the pool small; a full queue leaves images on their originals
+    @Bean
+    public ThreadPoolTaskExecutor mediaVariantExecutor(
+            @Value("${app.media.variants.threads:2}") int threads,
+            @Value("${app.media.variants.queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("media-variants-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    // Stores the files of one upload request side by side; when saturated the request thread does the work
+    @Bean
+    public ThreadPoolTaskExecutor mediaUploadExecutor(
+            @Value("${app.media.upload.threads:8}") int threads,
+            @Value("${app.media.upload.queue-capacity:64}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("media-upload-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -1,15 +1,26 @@
 package com.madagha.backend.media.controller;
 
 import com.madagha.backend.common.response.ApiResponse;
+import com.madagha.backend.media.dto.MediaUploadRequest;
+import com.madagha.backend.media.dto.MediaUploadStatus;
+import com.madagha.backend.media.service.MediaFile;
 import com.madagha.backend.media.service.MediaService;
+import com.madagha.backend.media.service.MediaUploadSessionService;
+import com.madagha.backend.media.service.MediaUrlSigner;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.UUID;
 
@@ -19,6 +30,9 @@ import java.util.UUID;
 public class MediaController {
 
     private final MediaService mediaService;
+    private final MediaFileWriter mediaFileWriter;
+    private final MediaUrlSigner mediaUrlSigner;
+    private final MediaUploadSessionService uploadSessionService;
 
     @PostMapping("/upload/{postId}")
     public ResponseEntity<ApiResponse<List<String>>> uploadFiles(
@@ -28,14 +42,109 @@ public class MediaController {
         return ResponseEntity.ok(ApiResponse.success("Files uploaded successfully", fileNames));
     }
 
+    /**
+     * Starts a resumable upload for a file too large for {@link #uploadFiles}.
+     * Chunks go to {@code PUT /uploads/{uploadId}?offset=}, then
+     * {@code POST /uploads/{uploadId}/complete} attaches the file to the post.
+     */
+    @PostMapping("/uploads")
+    public ResponseEntity<ApiResponse<MediaUploadStatus>> startUpload(
+            @Valid @RequestBody MediaUploadRequest request,
+            @AuthenticationPrincipal UserDetails userDetails) throws IOException {
+        MediaUploadStatus status = uploadSessionService.startUpload(request, userDetails.getUsername());
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(ApiResponse.success("Upload started", status));
+    }
+
+    // Where to resume after a dropped connection
+    @GetMapping("/uploads/{uploadId}")
+    public ResponseEntity<ApiResponse<MediaUploadStatus>> getUpload(
+            @PathVariable UUID uploadId,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        return ResponseEntity.ok(ApiResponse.success(
+                uploadSessionService.getUpload(uploadId, userDetails.getUsername())));
+    }
+
+    // The raw request body is the chunk
+    @PutMapping("/uploads/{uploadId}")
+    public ResponseEntity<ApiResponse<MediaUploadStatus>> uploadChunk(
+            @PathVariable UUID uploadId,
+            @RequestParam long offset,
+            InputStream body,
+            @AuthenticationPrincipal UserDetails userDetails) throws IOException {
+        return ResponseEntity.ok(ApiResponse.success(
+                uploadSessionService.writeChunk(uploadId, offset, body, userDetails.getUsername())));
+    }
+
+    @PostMapping("/uploads/{uploadId}/complete")
+    public ResponseEntity<ApiResponse<String>> completeUpload(
+            @PathVariable UUID uploadId,
+            @AuthenticationPrincipal UserDetails userDetails) throws IOException {
+        String fileName = uploadSessionService.completeUpload(uploadId, userDetails.getUsername());
+        return ResponseEntity.ok(ApiResponse.success("File uploaded successfully", fileName));
+    }
+
+    @DeleteMapping("/uploads/{uploadId}")
+    public ResponseEntity<ApiResponse<Void>> cancelUpload(
+            @PathVariable UUID uploadId,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        uploadSessionService.cancelUpload(uploadId, userDetails.getUsername());
+        return ResponseEntity.ok(ApiResponse.success("Upload cancelled", null));
+    }
+
+    /**
+     * Serves a file, or its smallest resized variant at least {@code w} pixels
+     * wide. Without {@code w} the Sec-CH-Width / Width client hints are used.
+     * The original is served while variants are still being generated.
+     */
     @GetMapping("/{fileName:.+}")
-    public ResponseEntity<Resource> serveFile(@PathVariable String fileName) {
-        Resource resource = mediaService.loadFileAsResource(fileName);
-        String contentType = mediaService.getFileContentType(fileName);
-
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(contentType))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + fileName + "\"")
-                .body(resource);
+    public void serveFile(
+            @PathVariable String fileName,
+            @RequestParam(value = "w", required = false) Integer width,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        write(mediaService.getMediaFile(fileName), fileName, width, request, response);
+    }
+
+    /**
+     * Serves a file from a signed URL as built by {@code MediaUrlSigner}. The
+     * token describes the file, so no media row is looked up; the trailing
+     * name is only there for the extension and is not trusted.
+     */
+    @GetMapping("/s/{token}/{fileName:.+}")
+    public void serveSignedFile(
+            @PathVariable String token,
+            @RequestParam(value = "w", required = false) Integer width,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        MediaUrlSigner.SignedMedia media = mediaUrlSigner.verify(token);
+        write(mediaService.getMediaFile(media), media.getName(), width, request, response);
+    }
+
+    private void write(MediaFile file, String fileName, Integer width, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        Integer requested = width;
+        if (requested == null) {
+            response.addHeader(HttpHeaders.VARY, "Sec-CH-Width, Width");
+            requested = hintedWidth(request);
+        }
+        if (requested != null && requested > 0) {
+            file = file.forWidth(requested);
+        }
+        mediaFileWriter.write(file, fileName, request, response);
+    }
+
+    private Integer hintedWidth(HttpServletRequest request) {
+        for (String header : List.of("Sec-CH-Width", "Width")) {
+            String value = request.getHeader(header);
+            if (value != null) {
+                try {
+                    return (int) Math.ceil(Double.parseDouble(value.trim()));
+                } catch (NumberFormatException ex) {
+                    return null;
+                }
+            }
+        }
+        return null;
     }
 }
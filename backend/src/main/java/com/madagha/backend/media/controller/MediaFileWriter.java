@@ -0,0 +1,261 @@
+package com.madagha.backend.media.controller;
+
+import com.madagha.backend.media.service.MediaFile;
+import com.madagha.backend.media.service.MediaSegmentStore;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes a stored media file to the response with conditional request and
+ * byte range support (RFC 9110). Single ranges and whole files go through
+ * Tomcat's sendfile when the connector offers it; otherwise, and for
+ * multipart/byteranges, the file channel is transferred to the response.
+ * Content packed into a segment is written from its memory mapping.
+ */
+@Component
+@RequiredArgsConstructor
+public class MediaFileWriter {
+
+    // Tomcat request attributes for handing a file region to the connector's sendfile
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final MediaSegmentStore segmentStore;
+
+    @Value("${app.media.serve.max-ranges:16}")
+    private int maxRanges;
+
+    public void write(MediaFile file, String fileName, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        // Sets ETag and Last-Modified and answers 304 / 412 where the validators match
+        if (new ServletWebRequest(request, response).checkNotModified(file.getEtag(), file.getLastModified())) {
+            return;
+        }
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + fileName + "\"");
+
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || !ifRangeMatches(request, file)) {
+            sendWhole(file, request, response);
+            return;
+        }
+
+        List<long[]> ranges = parseRanges(rangeHeader, file.getSize());
+        if (ranges == null) {
+            // Malformed or too many ranges: ignoring the header is allowed
+            sendWhole(file, request, response);
+        } else if (ranges.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + file.getSize());
+        } else if (ranges.size() == 1) {
+            long[] range = ranges.get(0);
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(range, file.getSize()));
+            send(file, range[0], range[1] + 1, request, response);
+        } else {
+            sendMultipart(file, ranges, request, response);
+        }
+    }
+
+    private void sendWhole(MediaFile file, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        send(file, 0, file.getSize(), request, response);
+    }
+
+    private void send(MediaFile file, long start, long end, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        response.setContentType(file.getContentType());
+        response.setContentLengthLong(end - start);
+        if (isHead(request)) {
+            return;
+        }
+
+        if (!file.isPacked() && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.getPath().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+            return;
+        }
+
+        try (Source source = open(file)) {
+            source.transfer(start, end, Channels.newChannel(response.getOutputStream()));
+        }
+    }
+
+    private void sendMultipart(MediaFile file, List<long[]> ranges, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long length = 0;
+        for (long[] range : ranges) {
+            byte[] header = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + file.getContentType() + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": " + contentRange(range, file.getSize()) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(header);
+            length += header.length + range[1] - range[0] + 1;
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        length += closing.length;
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(length);
+        if (isHead(request)) {
+            return;
+        }
+
+        OutputStream out = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        try (Source source = open(file)) {
+            for (int i = 0; i < ranges.size(); i++) {
+                out.write(partHeaders.get(i));
+                source.transfer(ranges.get(i)[0], ranges.get(i)[1] + 1, target);
+            }
+        }
+        out.write(closing);
+    }
+
+    // Packed content is sliced from the segment mapping; plain files go channel to channel
+    private Source open(MediaFile file) throws IOException {
+        if (file.isPacked()) {
+            ByteBuffer content = segmentStore.read(file.getSegmentId(), file.getOffset(), file.getSize());
+            return (start, end, target) -> {
+                ByteBuffer range = content.slice((int) start, (int) (end - start));
+                while (range.hasRemaining()) {
+                    target.write(range);
+                }
+            };
+        }
+
+        FileChannel channel = FileChannel.open(file.getPath(), StandardOpenOption.READ);
+        return new Source() {
+            @Override
+            public void transfer(long start, long end, WritableByteChannel target) throws IOException {
+                long position = start;
+                while (position < end) {
+                    long sent = channel.transferTo(position, end - position, target);
+                    if (sent <= 0) {
+                        // The file shrank underneath us; the declared length can no longer be met
+                        throw new IOException("Unexpected end of file while sending range");
+                    }
+                    position += sent;
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+
+    private interface Source extends AutoCloseable {
+        void transfer(long start, long end, WritableByteChannel target) throws IOException;
+
+        @Override
+        default void close() throws IOException {
+        }
+    }
+
+    /**
+     * Parses a {@code bytes=} range set into inclusive [start, end] pairs.
+     * Returns {@code null} when the header should be ignored and an empty list
+     * when no range can be satisfied.
+     */
+    private List<long[]> parseRanges(String header, long size) {
+        if (!header.startsWith("bytes=")) {
+            return null;
+        }
+        String[] specs = header.substring("bytes=".length()).split(",");
+        if (specs.length > maxRanges) {
+            return null;
+        }
+
+        List<long[]> ranges = new ArrayList<>(specs.length);
+        for (String spec : specs) {
+            String trimmed = spec.trim();
+            int dash = trimmed.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            try {
+                String first = trimmed.substring(0, dash).trim();
+                String last = trimmed.substring(dash + 1).trim();
+                long start;
+                long end;
+                if (first.isEmpty()) {
+                    // Suffix range: the last N bytes
+                    long suffix = Long.parseLong(last);
+                    if (suffix <= 0) {
+                        continue;
+                    }
+                    start = Math.max(0, size - suffix);
+                    end = size - 1;
+                } else {
+                    start = Long.parseLong(first);
+                    end = size - 1;
+                    if (!last.isEmpty()) {
+                        long requestedEnd = Long.parseLong(last);
+                        if (requestedEnd < start) {
+                            return null;
+                        }
+                        end = Math.min(requestedEnd, size - 1);
+                    }
+                }
+                if (start < size && start <= end) {
+                    ranges.add(new long[]{start, end});
+                }
+            } catch (NumberFormatException ex) {
+                return null;
+            }
+        }
+        return ranges;
+    }
+
+    // A stale If-Range means the client's partial copy is outdated, so it gets the whole file
+    private boolean ifRangeMatches(HttpServletRequest request, MediaFile file) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(file.getEtag());
+        }
+        try {
+            long date = request.getDateHeader(HttpHeaders.IF_RANGE);
+            return date != -1 && file.getLastModified() / 1000 == date / 1000;
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+    }
+
+    private static String contentRange(long[] range, long size) {
+        return "bytes " + range[0] + "-" + range[1] + "/" + size;
+    }
+
+    private static boolean isHead(HttpServletRequest request) {
+        return "HEAD".equals(request.getMethod());
+    }
+}
@@ -0,0 +1,60 @@
+package com.madagha.backend.media.controller;
+
+import com.madagha.backend.media.service.MediaReclaimer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code /actuator/mediastorage}: bytes uploaded per user and per month,
+ * what is physically stored after deduplication, and the latest reclaim run.
+ * Per-user and per-month figures count every upload in full even when the
+ * content is shared; files stored before sizes were recorded count once the
+ * reclaimer has measured them.
+ */
+@Component
+@Endpoint(id = "mediastorage")
+@RequiredArgsConstructor
+public class MediaStorageEndpoint {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MediaReclaimer mediaReclaimer;
+
+    @ReadOperation
+    public Map<String, Object> storage(@Nullable Integer limit) {
+        int users = limit == null ? 50 : Math.max(1, Math.min(limit, 1000));
+
+        Map<String, Object> stored = jdbcTemplate.queryForMap(
+                "SELECT COUNT(*) AS blobs, COALESCE(SUM(file_size), 0) AS bytes, "
+                        + "COALESCE(SUM(CASE WHEN segment_id IS NOT NULL THEN file_size END), 0) AS packed_bytes "
+                        + "FROM media_blobs");
+        Map<String, Object> uploaded = jdbcTemplate.queryForMap(
+                "SELECT COUNT(*) AS files, COALESCE(SUM(file_size), 0) AS bytes, "
+                        + "COUNT(*) FILTER (WHERE file_size IS NULL) AS unmeasured_files FROM media");
+
+        List<Map<String, Object>> byUser = jdbcTemplate.queryForList(
+                "SELECT u.id AS user_id, u.username, COUNT(m.id) AS files, COALESCE(SUM(m.file_size), 0) AS bytes "
+                        + "FROM media m JOIN posts p ON p.id = m.post_id JOIN users u ON u.id = p.owner_id "
+                        + "GROUP BY u.id, u.username ORDER BY bytes DESC LIMIT ?",
+                users);
+        List<Map<String, Object>> byMonth = jdbcTemplate.queryForList(
+                "SELECT to_char(date_trunc('month', created_at), 'YYYY-MM') AS month, COUNT(*) AS files, "
+                        + "COALESCE(SUM(file_size), 0) AS bytes FROM media GROUP BY 1 ORDER BY 1");
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("uploaded", uploaded);
+        result.put("stored", stored);
+        result.put("byUser", byUser);
+        result.put("byMonth", byMonth);
+        MediaReclaimer.Report report = mediaReclaimer.getLastReport();
+        result.put("lastReclaim", report == null ? null : report.toMap());
+        return result;
+    }
+}
@@ -0,0 +1,28 @@
+package com.madagha.backend.media.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MediaUploadRequest {
+
+    @NotNull(message = "Post id is required")
+    private UUID postId;
+
+    @NotBlank(message = "File name is required")
+    private String fileName;
+
+    @NotBlank(message = "Content type is required")
+    private String contentType;
+
+    @Positive(message = "Size must be positive")
+    private long size;
+}
@@ -0,0 +1,20 @@
+package com.madagha.backend.media.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MediaUploadStatus {
+    private UUID uploadId;
+    // Bytes received without gaps; the next chunk starts here
+    private long offset;
+    private long size;
+    private long maxChunkSize;
+}
@@ -34,6 +34,14 @@ public class Media {
     @Column(nullable = false)
     private String fileType;
 
+    // Null for files stored before sizes and checksums were recorded
+    @Column(name = "file_size")
+    private Long fileSize;
+
+    // Hex SHA-256 of the content; references media_blobs.checksum for deduplicated uploads
+    @Column(length = 64)
+    private String checksum;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "post_id")
     private Post post;
@@ -0,0 +1,57 @@
+package com.madagha.backend.media.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stored file content, keyed by its SHA-256. Every {@link Media} row with the
+ * same checksum points at one blob; the blob is deleted once its reference
+ * count drops to zero.
+ */
+@Entity
+@Table(name = "media_blobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MediaBlob {
+
+    @Id
+    @Column(length = 64)
+    private String checksum;
+
+    @Column(nullable = false)
+    private String filePath;
+
+    @Column(name = "file_size", nullable = false)
+    private long fileSize;
+
+    @Column(nullable = false)
+    private String contentType;
+
+    // Maintained by MediaBlobStore with native updates
+    @Column(name = "ref_count", nullable = false, updatable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private long refCount = 0;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    // Set when the content is packed into a segment file instead of living at filePath
+    @Column(name = "segment_id", updatable = false)
+    private Long segmentId;
+
+    @Column(name = "segment_offset", updatable = false)
+    private Long segmentOffset;
+
+    // Resized copies as width:bytes pairs; null while pending, empty when none apply
+    @Column(columnDefinition = "TEXT", updatable = false)
+    private String variants;
+}
@@ -0,0 +1,58 @@
+package com.madagha.backend.media.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A chunked upload in progress. Chunks are written into a file of the final
+ * size under {@code tmp/}; {@code receivedBytes} is how far it is filled
+ * without gaps, which is where the client resumes.
+ */
+@Entity
+@Table(name = "media_upload_sessions")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MediaUploadSession {
+
+    @Id
+    private UUID id;
+
+    @Column(name = "post_id", nullable = false)
+    private UUID postId;
+
+    @Column(name = "owner_id", nullable = false)
+    private UUID ownerId;
+
+    @Column(nullable = false)
+    private String fileName;
+
+    @Column(nullable = false)
+    private String contentType;
+
+    @Column(name = "file_size", nullable = false)
+    private long fileSize;
+
+    @Column(nullable = false)
+    private String tempPath;
+
+    // Maintained by MediaUploadSessionService with native updates
+    @Column(name = "received_bytes", nullable = false, updatable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private long receivedBytes = 0;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime updatedAt;
+}
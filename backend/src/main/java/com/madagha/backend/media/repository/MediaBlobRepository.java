@@ -0,0 +1,9 @@
+package com.madagha.backend.media.repository;
+
+import com.madagha.backend.media.entity.MediaBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface MediaBlobRepository extends JpaRepository<MediaBlob, String> {
+}
@@ -0,0 +1,11 @@
+package com.madagha.backend.media.repository;
+
+import com.madagha.backend.media.entity.MediaUploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface MediaUploadSessionRepository extends JpaRepository<MediaUploadSession, UUID> {
+}
@@ -0,0 +1,209 @@
+package com.madagha.backend.media.service;
+
+import com.madagha.backend.media.entity.MediaBlob;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Content-addressed file store. Uploads land in a temp file and are then
+ * moved to {@code blobs/ab/cd/<sha256>}, or dropped when that content is
+ * already stored; either way the blob's reference count goes up by one.
+ * <p>
+ * Reference changes and garbage collection of a blob take the same advisory
+ * lock, so a blob being collected can never be handed to a new upload.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+public class MediaBlobStore implements InitializingBean {
+
+    private static final String ACQUIRE = "INSERT INTO media_blobs "
+            + "(checksum, file_path, file_size, content_type, ref_count, created_at) VALUES (?, ?, ?, ?, 1, ?) "
+            + "ON CONFLICT (checksum) DO UPDATE SET ref_count = media_blobs.ref_count + 1 "
+            + "RETURNING checksum, file_path, file_size, content_type, ref_count, created_at, variants, "
+            + "segment_id, segment_offset";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MediaSegmentStore segmentStore;
+    private final String uploadDir;
+
+    public MediaBlobStore(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            MediaSegmentStore segmentStore,
+            @Value("${app.upload.dir}") String uploadDir) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.segmentStore = segmentStore;
+        this.uploadDir = uploadDir;
+    }
+
+    public Path newTempFile() throws IOException {
+        Path tmp = Paths.get(uploadDir, "tmp");
+        Files.createDirectories(tmp);
+        return tmp.resolve(UUID.randomUUID() + ".part");
+    }
+
+    /** Where the blob for {@code checksum} has its own file, in the form recorded on its rows. */
+    public String blobPath(String checksum) {
+        return uploadDir + "/blobs/" + checksum.substring(0, 2) + "/" + checksum.substring(2, 4) + "/" + checksum;
+    }
+
+    /**
+     * Takes a reference on the blob for {@code checksum}. New content is
+     * appended to a segment when small enough and segments are enabled, or
+     * else moved into place as its own file; known content just drops
+     * {@code tempFile}.
+     */
+    public MediaBlob acquire(Path tempFile, String checksum, long size, String contentType) {
+        String blobPath = blobPath(checksum);
+        return transactionTemplate.execute(status -> {
+            lock(checksum);
+            MediaBlob blob = jdbcTemplate.queryForObject(ACQUIRE, (rs, rowNum) -> MediaBlob.builder()
+                            .checksum(rs.getString("checksum"))
+                            .filePath(rs.getString("file_path"))
+                            .fileSize(rs.getLong("file_size"))
+                            .contentType(rs.getString("content_type"))
+                            .refCount(rs.getLong("ref_count"))
+                            .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+                            .variants(rs.getString("variants"))
+                            .segmentId((Long) rs.getObject("segment_id"))
+                            .segmentOffset((Long) rs.getObject("segment_offset"))
+                            .build(),
+                    checksum, blobPath, size, contentType, Timestamp.valueOf(LocalDateTime.now()));
+            try {
+                Path target = Paths.get(blob.getFilePath());
+                if (blob.getSegmentId() != null || Files.exists(target)) {
+                    Files.delete(tempFile);
+                } else if (segmentStore.accepts(size)) {
+                    MediaSegmentStore.Location location = segmentStore.append(tempFile, size);
+                    jdbcTemplate.update(
+                            "UPDATE media_blobs SET segment_id = ?, segment_offset = ? WHERE checksum = ?",
+                            location.getSegmentId(), location.getOffset(), checksum);
+                    blob.setSegmentId(location.getSegmentId());
+                    blob.setSegmentOffset(location.getOffset());
+                    Files.delete(tempFile);
+                } else {
+                    Files.createDirectories(target.getParent());
+                    Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            return blob;
+        });
+    }
+
+    /**
+     * Drops references, keyed by checksum. Joins the caller's transaction so
+     * the counts move together with the media rows being deleted.
+     */
+    public void release(Map<String, Long> references) {
+        List<Object[]> args = new ArrayList<>(references.size());
+        references.forEach((checksum, count) -> args.add(new Object[]{count, checksum}));
+        jdbcTemplate.batchUpdate(
+                "UPDATE media_blobs SET ref_count = GREATEST(ref_count - ?, 0) WHERE checksum = ?", args);
+    }
+
+    @Scheduled(cron = "${app.media.blobs.gc-cron:0 15 4 * * *}")
+    public void collectGarbage() {
+        int deleted = collect(jdbcTemplate.queryForList(
+                "SELECT checksum FROM media_blobs WHERE ref_count = 0", String.class));
+        if (deleted > 0) {
+            log.info("Deleted {} unreferenced media blobs", deleted);
+        }
+    }
+
+    /**
+     * Deletes those of the given blobs that are unreferenced, with their
+     * files. Returns how many were deleted.
+     */
+    public int collect(Collection<String> checksums) {
+        int deleted = 0;
+        for (String checksum : checksums) {
+            Boolean removed = transactionTemplate.execute(status -> {
+                lock(checksum);
+                List<Path> files = new ArrayList<>();
+                jdbcTemplate.query(
+                        "DELETE FROM media_blobs WHERE checksum = ? AND ref_count = 0 RETURNING file_path, variants",
+                        rs -> {
+                            Path original = Paths.get(rs.getString("file_path"));
+                            files.add(original);
+                            MediaFile.parseVariants(rs.getString("variants")).keySet()
+                                    .forEach(width -> files.add(MediaFile.variantPath(original, width)));
+                        },
+                        checksum);
+                for (Path file : files) {
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                }
+                return !files.isEmpty();
+            });
+            if (Boolean.TRUE.equals(removed)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Registers checksummed media stored before deduplication as blobs and
+     * recounts every blob's references from the media table. Runs while the
+     * context starts, once Hibernate has created the tables and before the
+     * web server takes uploads: an upload between
+     * its reference increment and its media insert would be undercounted and
+     * could later be collected while still in use.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        reconcile();
+    }
+
+    private void reconcile() {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("INSERT INTO media_blobs "
+                    + "(checksum, file_path, file_size, content_type, ref_count, created_at) "
+                    + "SELECT checksum, MIN(file_path), MAX(file_size), MIN(file_type), 0, MIN(created_at) "
+                    + "FROM media WHERE checksum IS NOT NULL AND file_size IS NOT NULL GROUP BY checksum "
+                    + "ON CONFLICT (checksum) DO NOTHING");
+            jdbcTemplate.update("UPDATE media_blobs b SET ref_count = c.refs "
+                    + "FROM (SELECT b2.checksum, COUNT(m.id) AS refs FROM media_blobs b2 "
+                    + "LEFT JOIN media m ON m.checksum = b2.checksum GROUP BY b2.checksum) c "
+                    + "WHERE c.checksum = b.checksum AND b.ref_count <> c.refs");
+        });
+    }
+
+    private void lock(String checksum) {
+        jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?)", lockKey(checksum));
+    }
+
+    // Shared with segment compaction, which moves blobs under the same lock
+    static long lockKey(String checksum) {
+        return Long.parseUnsignedLong(checksum.substring(0, 16), 16);
+    }
+}
@@ -0,0 +1,89 @@
+package com.madagha.backend.media.service;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * What is needed to serve stored content: where it is, what it is and the
+ * validators for conditional requests. Media rows sharing a blob share one
+ * instance, keyed by the blob checksum (or the file name for files stored
+ * before deduplication).
+ */
+@Getter
+@Builder(toBuilder = true)
+public class MediaFile {
+    private final String key;
+    private final Path path;
+    private final String contentType;
+    private final long size;
+    private final String etag;
+    private final long lastModified;
+
+    // Set when the content is packed into a segment; path is then the segment file
+    private final Long segmentId;
+    // Where the blob's own file would be; variants live next to it
+    private final Path originalPath;
+    private final long offset;
+
+    // Resized copies by width, with their sizes in bytes; empty until generated
+    @Builder.Default
+    private final NavigableMap<Integer, Long> variants = Collections.emptyNavigableMap();
+
+    public boolean isPacked() {
+        return segmentId != null;
+    }
+
+    /**
+     * The smallest variant at least {@code width} pixels wide, or this file
+     * when there is none. Variants are always plain files.
+     */
+    public MediaFile forWidth(int width) {
+        Map.Entry<Integer, Long> variant = variants.ceilingEntry(width);
+        if (variant == null) {
+            return this;
+        }
+        return MediaFile.builder()
+                .key(key + "-w" + variant.getKey())
+                .path(variantPath(originalPath, variant.getKey()))
+                .contentType(variantContentType(contentType))
+                .size(variant.getValue())
+                .etag("\"" + etag.replace("\"", "") + "-w" + variant.getKey() + "\"")
+                .lastModified(lastModified)
+                .build();
+    }
+
+    public static Path variantPath(Path original, int width) {
+        return Paths.get(original + ".w" + width);
+    }
+
+    // PNG keeps its transparency; everything else is re-encoded as JPEG
+    public static String variantContentType(String contentType) {
+        return "image/png".equals(contentType) ? "image/png" : "image/jpeg";
+    }
+
+    /** Parses the {@code width:bytes,...} form stored on media_blobs.variants. */
+    public static NavigableMap<Integer, Long> parseVariants(String value) {
+        NavigableMap<Integer, Long> variants = new TreeMap<>();
+        if (value != null && !value.isBlank()) {
+            for (String variant : value.split(",")) {
+                String[] parts = variant.split(":");
+                variants.put(Integer.parseInt(parts[0]), Long.parseLong(parts[1]));
+            }
+        }
+        return Collections.unmodifiableNavigableMap(variants);
+    }
+
+    public static String formatVariants(Map<Integer, Long> variants) {
+        return variants.entrySet().stream()
+                .map(entry -> entry.getKey() + ":" + entry.getValue())
+                .collect(Collectors.joining(","));
+    }
+}
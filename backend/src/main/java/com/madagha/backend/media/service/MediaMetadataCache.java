@@ -0,0 +1,252 @@
+package com.madagha.backend.media.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Cache of {@link MediaFile} metadata by file name, so serving media normally
+ * needs no database query. Bounded both by entry count and by the estimated
+ * heap the entries take, evicting in approximate least-recently-used order
+ * (CLOCK: a hit marks the entry, and the eviction hand spares marked entries
+ * once). Hits take no lock.
+ * <p>
+ * Names are cheap aliases onto content entries keyed by
+ * {@link MediaFile#getKey()}, so the same upload reused across many posts is
+ * held and weighed once. Stored content never changes, so entries only
+ * leave on eviction or when the media is deleted.
+ */
+@Component
+public class MediaMetadataCache {
+
+    // Object headers, the Path and the boxed fields around the strings
+    private static final long CONTENT_OVERHEAD = 256;
+    private static final long NAME_OVERHEAD = 96;
+
+    private final Map<String, Name> names = new ConcurrentHashMap<>();
+    private final Map<String, Content> contents = new ConcurrentHashMap<>();
+    // Misses being loaded; concurrent misses share the load, and an invalidation removes the marker
+    private final Map<String, CompletableFuture<MediaFile>> loads = new ConcurrentHashMap<>();
+    private final AtomicLong weight = new AtomicLong();
+    private final long maxEntries;
+    private final long maxBytes;
+
+    // Only one thread sweeps at a time; the others leave the overshoot to it
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private Iterator<Map.Entry<String, Name>> hand;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public MediaMetadataCache(
+            MeterRegistry meterRegistry,
+            @Value("${app.media.metadata-cache.max-entries:50000}") long maxEntries,
+            @Value("${app.media.metadata-cache.max-bytes:33554432}") long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.hits = meterRegistry.counter("media.metadata.cache", "result", "hit");
+        this.misses = meterRegistry.counter("media.metadata.cache", "result", "miss");
+        this.evictions = meterRegistry.counter("media.metadata.cache.evictions");
+        meterRegistry.gauge("media.metadata.cache.size", names, Map::size);
+        meterRegistry.gauge("media.metadata.cache.bytes", weight, AtomicLong::get);
+    }
+
+    /**
+     * Returns the cached metadata for {@code name}, loading it with
+     * {@code loader} on a miss. Concurrent misses on the same name wait for
+     * one load. If {@code name} is invalidated while the load is running,
+     * the loaded metadata is returned but not cached, since it may predate
+     * the deletion.
+     */
+    public MediaFile get(String name, Function<String, MediaFile> loader) {
+        Name entry = names.get(name);
+        if (entry != null) {
+            entry.referenced = true;
+            hits.increment();
+            return entry.content.file;
+        }
+
+        CompletableFuture<MediaFile> load = new CompletableFuture<>();
+        CompletableFuture<MediaFile> running = loads.putIfAbsent(name, load);
+        if (running != null) {
+            hits.increment();
+            return await(running);
+        }
+        misses.increment();
+        MediaFile file;
+        try {
+            file = loader.apply(name);
+        } catch (RuntimeException | Error e) {
+            loads.remove(name, load);
+            load.completeExceptionally(e);
+            throw e;
+        }
+        MediaFile[] cached = {file};
+        // Atomic with invalidate's removal of the marker, so a deletion is never overwritten
+        loads.computeIfPresent(name, (key, current) -> {
+            if (current == load && file != null) {
+                cached[0] = put(name, file);
+            }
+            return current == load ? null : current;
+        });
+        load.complete(cached[0]);
+        return cached[0];
+    }
+
+    /**
+     * Content already cached under {@code key} through some other name, if
+     * any. Lets a loader skip the blob lookup for shared content.
+     */
+    public MediaFile getContent(String key) {
+        Content content = contents.get(key);
+        return content == null ? null : content.file;
+    }
+
+    /**
+     * Maps {@code name} to {@code file}, returning the instance that ends up
+     * cached (an existing one when the content is already held).
+     */
+    public MediaFile put(String name, MediaFile file) {
+        Content content = contents.compute(file.getKey(), (key, existing) -> {
+            Content held = existing;
+            if (held == null) {
+                held = new Content(key, file, estimate(file), 0);
+                weight.addAndGet(held.weight);
+            }
+            held.references++;
+            return held;
+        });
+
+        Name entry = new Name(content, NAME_OVERHEAD + name.length() * 2L);
+        weight.addAndGet(entry.weight);
+        Name previous = names.put(name, entry);
+        if (previous != null) {
+            release(previous);
+        }
+        evictIfFull();
+        return content.file;
+    }
+
+    /**
+     * Replaces cached content in place (new variants, a new segment location),
+     * so every name sharing it sees the change without a reload.
+     */
+    public void update(String key, UnaryOperator<MediaFile> change) {
+        contents.computeIfPresent(key, (k, content) -> {
+            content.file = change.apply(content.file);
+            return content;
+        });
+    }
+
+    public void invalidate(String name) {
+        loads.remove(name);
+        Name removed = names.remove(name);
+        if (removed != null) {
+            release(removed);
+        }
+    }
+
+    public void invalidateAll(Collection<String> names) {
+        names.forEach(this::invalidate);
+    }
+
+    private static MediaFile await(CompletableFuture<MediaFile> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // Called once per name entry leaving the map, by whoever removed it
+    private void release(Name entry) {
+        weight.addAndGet(-entry.weight);
+        Content released = entry.content;
+        contents.computeIfPresent(released.key, (key, content) -> {
+            if (content != released || --content.references > 0) {
+                return content;
+            }
+            weight.addAndGet(-content.weight);
+            return null;
+        });
+    }
+
+    private boolean isFull() {
+        return names.size() > maxEntries || weight.get() > maxBytes;
+    }
+
+    // The hand resumes where the last sweep stopped and spares each recently hit entry once
+    private void evictIfFull() {
+        if (!isFull() || !evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            int spared = 0;
+            while (isFull() && !names.isEmpty()) {
+                if (hand == null || !hand.hasNext()) {
+                    hand = names.entrySet().iterator();
+                    continue;
+                }
+                Map.Entry<String, Name> candidate = hand.next();
+                Name entry = candidate.getValue();
+                if (entry.referenced && spared++ < names.size()) {
+                    entry.referenced = false;
+                    continue;
+                }
+                if (names.remove(candidate.getKey(), entry)) {
+                    release(entry);
+                    evictions.increment();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static long estimate(MediaFile file) {
+        long chars = length(file.getKey()) + length(file.getContentType()) + length(file.getEtag())
+                + file.getPath().toString().length() * 2L;
+        return CONTENT_OVERHEAD + chars * 2;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    @RequiredArgsConstructor
+    private static final class Name {
+        private final Content content;
+        private final long weight;
+        private volatile boolean referenced;
+    }
+
+    // References only change inside compute on the contents map
+    @AllArgsConstructor
+    private static final class Content {
+        private final String key;
+        private volatile MediaFile file;
+        private final long weight;
+        private int references;
+    }
+}
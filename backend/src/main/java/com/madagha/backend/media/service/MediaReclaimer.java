@@ -0,0 +1,313 @@
+package com.madagha.backend.media.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Deletes stored files nothing refers to any more: media files of posts
+ * deleted before uploads were reference counted, leftover temp files,
+ * variants of collected blobs and files written by uploads that failed half
+ * way. The upload tree is walked and checked against media and media_blobs
+ * in chunks, so memory stays flat however many files there are; anything
+ * younger than the grace period is left alone so in-flight uploads are safe.
+ * <p>
+ * Media rows that never got attached to a post are removed the same way.
+ * Segment files are left to {@link MediaSegmentStore}'s compaction.
+ */
+@Slf4j
+@Component
+public class MediaReclaimer {
+
+    private static final Pattern VARIANT_SUFFIX = Pattern.compile("\\.w\\d+$");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MediaBlobStore blobStore;
+    private final Path root;
+    private final String uploadDir;
+    private final Duration gracePeriod;
+    private final int chunkSize;
+
+    private final Counter reclaimedFiles;
+    private final Counter reclaimedBytes;
+
+    private volatile Report lastReport;
+
+    public MediaReclaimer(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            MediaBlobStore blobStore,
+            MeterRegistry meterRegistry,
+            @Value("${app.upload.dir}") String uploadDir,
+            @Value("${app.media.reclaimer.grace-period-ms:86400000}") long gracePeriodMs,
+            @Value("${app.media.reclaimer.chunk-size:1000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.blobStore = blobStore;
+        this.root = Paths.get(uploadDir);
+        this.uploadDir = uploadDir;
+        this.gracePeriod = Duration.ofMillis(gracePeriodMs);
+        this.chunkSize = chunkSize;
+        this.reclaimedFiles = meterRegistry.counter("media.reclaimer.files");
+        this.reclaimedBytes = meterRegistry.counter("media.reclaimer.bytes");
+    }
+
+    @Scheduled(cron = "${app.media.reclaimer.cron:0 45 4 * * *}")
+    public void reclaim() {
+        long started = System.currentTimeMillis();
+        Instant cutoff = Instant.now().minus(gracePeriod);
+        int detachedRows = reclaimDetachedMedia(LocalDateTime.now().minus(gracePeriod));
+
+        Report report = new Report();
+        if (Files.isDirectory(root)) {
+            try {
+                walk(cutoff, report);
+            } catch (IOException ex) {
+                log.warn("Media reclaim stopped early: {}", ex.getMessage());
+            }
+        }
+        report.detachedRows = detachedRows;
+        report.finishedAt = LocalDateTime.now();
+        report.durationMs = System.currentTimeMillis() - started;
+        lastReport = report;
+
+        log.info("Media reclaim scanned {} files, deleted {} ({} bytes) and {} detached media rows in {} ms",
+                report.scannedFiles, report.deletedFiles, report.deletedBytes, detachedRows, report.durationMs);
+    }
+
+    public Report getLastReport() {
+        return lastReport;
+    }
+
+    // Rows of uploads whose post never came to exist; their blob references go with them
+    private int reclaimDetachedMedia(LocalDateTime cutoff) {
+        int total = 0;
+        while (true) {
+            Integer deleted = transactionTemplate.execute(status -> {
+                List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                        "DELETE FROM media WHERE id IN (SELECT id FROM media WHERE post_id IS NULL "
+                                + "AND created_at < ? LIMIT ?) RETURNING checksum",
+                        Timestamp.valueOf(cutoff), chunkSize);
+                Map<String, Long> references = rows.stream()
+                        .map(row -> (String) row.get("checksum"))
+                        .filter(checksum -> checksum != null)
+                        .collect(Collectors.groupingBy(checksum -> checksum, Collectors.counting()));
+                if (!references.isEmpty()) {
+                    blobStore.release(references);
+                }
+                return rows.size();
+            });
+            total += deleted == null ? 0 : deleted;
+            if (deleted == null || deleted < chunkSize) {
+                return total;
+            }
+        }
+    }
+
+    private void walk(Instant cutoff, Report report) throws IOException {
+        Path segments = root.resolve("segments");
+        List<Candidate> chunk = new ArrayList<>(chunkSize);
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                return dir.equals(segments) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                report.scannedFiles++;
+                report.scannedBytes += attrs.size();
+                if (attrs.isRegularFile() && attrs.lastModifiedTime().toInstant().isBefore(cutoff)) {
+                    chunk.add(new Candidate(file, attrs.size()));
+                    if (chunk.size() >= chunkSize) {
+                        process(chunk, report);
+                        chunk.clear();
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException ex) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        process(chunk, report);
+    }
+
+    private void process(List<Candidate> chunk, Report report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        Path blobs = root.resolve("blobs");
+        Path tmp = root.resolve("tmp");
+
+        Set<String> checksums = new HashSet<>();
+        Set<String> paths = new HashSet<>();
+        Set<String> variantBases = new HashSet<>();
+        for (Candidate candidate : chunk) {
+            if (candidate.file.startsWith(blobs)) {
+                checksums.add(checksumOf(candidate.file));
+            } else if (!candidate.file.startsWith(tmp)) {
+                String stored = storedPath(candidate.file);
+                String base = variantBase(stored);
+                if (base != null) {
+                    variantBases.add(base);
+                } else {
+                    paths.add(stored);
+                }
+            }
+        }
+
+        // Blobs packed into a segment have no file of their own, only variants
+        Map<String, Boolean> blobPacked = new HashMap<>();
+        if (!checksums.isEmpty()) {
+            jdbcTemplate.query("SELECT checksum, segment_id IS NOT NULL AS packed FROM media_blobs "
+                            + "WHERE checksum = ANY (?)",
+                    rs -> {
+                        blobPacked.put(rs.getString("checksum"), rs.getBoolean("packed"));
+                    },
+                    (Object) checksums.toArray(new String[0]));
+        }
+        Set<String> referenced = new HashSet<>();
+        if (!paths.isEmpty()) {
+            String[] pathArray = paths.toArray(new String[0]);
+            referenced.addAll(jdbcTemplate.queryForList(
+                    "SELECT file_path FROM media WHERE file_path = ANY (?) "
+                            + "UNION SELECT file_path FROM media_blobs WHERE file_path = ANY (?)",
+                    String.class, pathArray, pathArray));
+        }
+
+        // Variants of blobs still at their pre-deduplication path sit next to that path
+        Set<String> variantOwners = new HashSet<>();
+        if (!variantBases.isEmpty()) {
+            variantOwners.addAll(jdbcTemplate.queryForList(
+                    "SELECT file_path FROM media_blobs WHERE file_path = ANY (?)",
+                    String.class, (Object) variantBases.toArray(new String[0])));
+        }
+
+        List<Object[]> sizes = new ArrayList<>();
+        for (Candidate candidate : chunk) {
+            boolean keep;
+            if (candidate.file.startsWith(tmp) || candidate.file.getFileName().toString().endsWith(".part")) {
+                keep = false;
+            } else if (candidate.file.startsWith(blobs)) {
+                String name = candidate.file.getFileName().toString();
+                Boolean packed = blobPacked.get(checksumOf(candidate.file));
+                boolean variant = name.contains(".w");
+                keep = packed != null && (variant || !packed);
+            } else {
+                String stored = storedPath(candidate.file);
+                String base = variantBase(stored);
+                if (base != null) {
+                    keep = variantOwners.contains(base);
+                } else {
+                    keep = referenced.contains(stored);
+                    if (keep) {
+                        sizes.add(new Object[]{candidate.size, stored});
+                    }
+                }
+            }
+            if (!keep) {
+                delete(candidate, report);
+            }
+        }
+
+        // Sizes of files stored before uploads were measured, so accounting covers them too
+        if (!sizes.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE media SET file_size = ? WHERE file_path = ? AND file_size IS NULL",
+                    sizes);
+        }
+    }
+
+    private void delete(Candidate candidate, Report report) {
+        try {
+            if (Files.deleteIfExists(candidate.file)) {
+                report.deletedFiles++;
+                report.deletedBytes += candidate.size;
+                reclaimedFiles.increment();
+                reclaimedBytes.increment(candidate.size);
+            }
+        } catch (IOException ex) {
+            log.warn("Could not delete orphaned media file {}: {}", candidate.file, ex.getMessage());
+        }
+    }
+
+    // Blob files are named <sha256>, with .w<width> for variants and .part while being written
+    private static String checksumOf(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.indexOf('.');
+        return dot < 0 ? name : name.substring(0, dot);
+    }
+
+    // The original a variant (<path>.w<width>) belongs to, or null for anything else
+    private static String variantBase(String stored) {
+        Matcher matcher = VARIANT_SUFFIX.matcher(stored);
+        return matcher.find() ? stored.substring(0, matcher.start()) : null;
+    }
+
+    // The form paths are recorded in: upload dir, slash, path below it
+    private String storedPath(Path file) {
+        return uploadDir + "/" + root.relativize(file).toString().replace('\\', '/');
+    }
+
+    @RequiredArgsConstructor
+    private static final class Candidate {
+        private final Path file;
+        private final long size;
+    }
+
+    /** Outcome of the latest run, for the storage actuator endpoint. */
+    @Getter
+    public static final class Report {
+        private long scannedFiles;
+        private long scannedBytes;
+        private long deletedFiles;
+        private long deletedBytes;
+        private int detachedRows;
+        private long durationMs;
+        private LocalDateTime finishedAt;
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("scannedFiles", scannedFiles);
+            map.put("scannedBytes", scannedBytes);
+            map.put("deletedFiles", deletedFiles);
+            map.put("deletedBytes", deletedBytes);
+            map.put("detachedRows", detachedRows);
+            map.put("durationMs", durationMs);
+            map.put("finishedAt", finishedAt.toString());
+            return map;
+        }
+    }
+}
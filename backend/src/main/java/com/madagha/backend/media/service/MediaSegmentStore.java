@@ -0,0 +1,310 @@
+package com.madagha.backend.media.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Optional storage engine that packs small blobs into large append-only
+ * segment files under {@code segments/}, so serving them needs neither an
+ * inode per image nor an open() per request. The location (segment and
+ * offset) is kept on the blob row; reads are slices of a read-only memory
+ * mapping of the segment.
+ * <p>
+ * Segments fill up one at a time and are never rewritten. Compaction copies
+ * the live blobs of mostly-dead segments into the active one and deletes the
+ * old file a cycle later, once readers holding the old location are done.
+ */
+@Slf4j
+@Component
+public class MediaSegmentStore implements InitializingBean {
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("(\\d{8})\\.seg");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MediaMetadataCache metadataCache;
+    private final Path directory;
+    private final boolean enabled;
+    private final long maxBlobSize;
+    private final long maxSegmentSize;
+    private final double minLiveRatio;
+
+    private final Map<Long, Mapping> mappings = new ConcurrentHashMap<>();
+    // Compacted segments wait one cycle before deletion; readers may still hold their old locations
+    private final List<Long> retired = new ArrayList<>();
+
+    private long activeId;
+    private FileChannel active;
+    private long activeSize;
+
+    public MediaSegmentStore(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            MediaMetadataCache metadataCache,
+            @Value("${app.upload.dir}") String uploadDir,
+            @Value("${app.media.segments.enabled:false}") boolean enabled,
+            @Value("${app.media.segments.max-blob-size:262144}") long maxBlobSize,
+            @Value("${app.media.segments.max-segment-size:268435456}") long maxSegmentSize,
+            @Value("${app.media.segments.compaction.min-live-ratio:0.5}") double minLiveRatio) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.metadataCache = metadataCache;
+        this.directory = Paths.get(uploadDir, "segments");
+        this.enabled = enabled;
+        this.maxBlobSize = maxBlobSize;
+        // A mapping is limited to 2GB
+        this.maxSegmentSize = Math.min(maxSegmentSize, Integer.MAX_VALUE);
+        this.minLiveRatio = minLiveRatio;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        Files.createDirectories(directory);
+        // Always start a fresh segment so a write torn by a crash is never appended to
+        activeId = existingSegments().stream().mapToLong(Long::longValue).max().orElse(0) + 1;
+    }
+
+    /** Whether new content of this size goes into a segment rather than its own file. */
+    public boolean accepts(long size) {
+        return enabled && size <= maxBlobSize;
+    }
+
+    public Path segmentPath(long segmentId) {
+        return directory.resolve(String.format("%08d.seg", segmentId));
+    }
+
+    /**
+     * Appends {@code size} bytes from {@code source} to the active segment and
+     * returns where they landed.
+     */
+    public synchronized Location append(Path source, long size) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+            FileChannel out = activeFor(size);
+            long offset = activeSize;
+            long position = 0;
+            while (position < size) {
+                long copied = out.transferFrom(in, offset + position, size - position);
+                if (copied <= 0) {
+                    throw new IOException("Unexpected end of " + source);
+                }
+                position += copied;
+            }
+            return commitAppend(out, offset, size);
+        }
+    }
+
+    private synchronized Location append(ByteBuffer content) throws IOException {
+        long size = content.remaining();
+        FileChannel out = activeFor(size);
+        long offset = activeSize;
+        long position = offset;
+        while (content.hasRemaining()) {
+            position += out.write(content, position);
+        }
+        return commitAppend(out, offset, size);
+    }
+
+    /**
+     * A read-only view of {@code length} bytes at {@code offset}. Slices are
+     * independent, so callers may consume them concurrently.
+     */
+    public ByteBuffer read(long segmentId, long offset, long length) {
+        Mapping mapping = mappings.get(segmentId);
+        if (mapping == null || offset + length > mapping.limit) {
+            mapping = map(segmentId, offset + length);
+        }
+        return mapping.buffer.slice((int) offset, (int) length);
+    }
+
+    @Scheduled(fixedDelayString = "${app.media.segments.compaction.interval-ms:3600000}",
+            initialDelayString = "${app.media.segments.compaction.initial-delay-ms:600000}")
+    public void compact() {
+        deleteRetired();
+        for (long segmentId : existingSegments()) {
+            if (segmentId == activeId) {
+                continue;
+            }
+            try {
+                long size = Files.size(segmentPath(segmentId));
+                Long live = jdbcTemplate.queryForObject(
+                        "SELECT COALESCE(SUM(file_size), 0) FROM media_blobs WHERE segment_id = ?",
+                        Long.class, segmentId);
+                if (live != null && live >= size * minLiveRatio) {
+                    continue;
+                }
+                int moved = relocate(segmentId);
+                synchronized (retired) {
+                    retired.add(segmentId);
+                }
+                log.info("Compacted media segment {}: moved {} blobs, reclaiming {} bytes", segmentId, moved,
+                        size - (live == null ? 0 : live));
+            } catch (IOException | RuntimeException ex) {
+                log.warn("Could not compact media segment {}: {}", segmentId, ex.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (active != null) {
+            active.close();
+        }
+    }
+
+    // Moves each live blob under its advisory lock, then points cached metadata at the new copy
+    private int relocate(long segmentId) {
+        List<String> checksums = jdbcTemplate.queryForList(
+                "SELECT checksum FROM media_blobs WHERE segment_id = ?", String.class, segmentId);
+        int moved = 0;
+        for (String checksum : checksums) {
+            Location location = transactionTemplate.execute(status -> {
+                jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?)", MediaBlobStore.lockKey(checksum));
+                List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                        "SELECT segment_offset, file_size FROM media_blobs WHERE checksum = ? AND segment_id = ?",
+                        checksum, segmentId);
+                if (rows.isEmpty()) {
+                    return null;
+                }
+                long offset = ((Number) rows.get(0).get("segment_offset")).longValue();
+                long length = ((Number) rows.get(0).get("file_size")).longValue();
+                try {
+                    Location target = append(read(segmentId, offset, length));
+                    jdbcTemplate.update(
+                            "UPDATE media_blobs SET segment_id = ?, segment_offset = ? WHERE checksum = ?",
+                            target.getSegmentId(), target.getOffset(), checksum);
+                    return target;
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            if (location != null) {
+                metadataCache.update(checksum, file -> file.toBuilder()
+                        .path(segmentPath(location.getSegmentId()))
+                        .segmentId(location.getSegmentId())
+                        .offset(location.getOffset())
+                        .build());
+                moved++;
+            }
+        }
+        return moved;
+    }
+
+    private void deleteRetired() {
+        List<Long> due;
+        synchronized (retired) {
+            due = new ArrayList<>(retired);
+            retired.clear();
+        }
+        for (long segmentId : due) {
+            Long remaining = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM media_blobs WHERE segment_id = ?", Long.class, segmentId);
+            if (remaining != null && remaining > 0) {
+                continue;
+            }
+            mappings.remove(segmentId);
+            try {
+                Files.deleteIfExists(segmentPath(segmentId));
+            } catch (IOException ex) {
+                log.warn("Could not delete media segment {}: {}", segmentId, ex.getMessage());
+            }
+        }
+    }
+
+    // Callers hold the monitor
+    private FileChannel activeFor(long size) throws IOException {
+        if (active != null && activeSize + size > maxSegmentSize) {
+            active.close();
+            active = null;
+            activeId++;
+        }
+        if (active == null) {
+            active = FileChannel.open(segmentPath(activeId), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            activeSize = active.size();
+        }
+        return active;
+    }
+
+    private Location commitAppend(FileChannel out, long offset, long size) throws IOException {
+        // Durable before the row pointing at it can commit
+        out.force(false);
+        activeSize = offset + size;
+        return new Location(activeId, offset);
+    }
+
+    // Remaps to the file's current length when a read reaches past the existing mapping
+    private synchronized Mapping map(long segmentId, long required) {
+        Mapping current = mappings.get(segmentId);
+        if (current != null && required <= current.limit) {
+            return current;
+        }
+        try (FileChannel channel = FileChannel.open(segmentPath(segmentId), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (required > size) {
+                throw new IOException("Segment " + segmentId + " is shorter than " + required + " bytes");
+            }
+            Mapping mapping = new Mapping(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), size);
+            mappings.put(segmentId, mapping);
+            return mapping;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private List<Long> existingSegments() {
+        List<Long> ids = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return ids;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.seg")) {
+            for (Path file : files) {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    ids.add(Long.parseLong(matcher.group(1)));
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        ids.sort(null);
+        return ids;
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static final class Location {
+        private final long segmentId;
+        private final long offset;
+    }
+
+    @RequiredArgsConstructor
+    private static final class Mapping {
+        private final MappedByteBuffer buffer;
+        private final long limit;
+    }
+}
@@ -1,39 +1,77 @@
 package com.madagha.backend.media.service;
 
 import com.madagha.backend.common.exception.ResourceNotFoundException;
+import com.madagha.backend.common.transaction.AfterCommit;
 import com.madagha.backend.media.entity.Media;
+import com.madagha.backend.media.entity.MediaBlob;
+import com.madagha.backend.media.repository.MediaBlobRepository;
 import com.madagha.backend.media.repository.MediaRepository;
 import com.madagha.backend.post.entity.Post;
 import com.madagha.backend.post.repository.PostRepository;
-import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
 
 @Service
-@RequiredArgsConstructor
 public class MediaService {
 
     private final MediaRepository mediaRepository;
     private final PostRepository postRepository;
-
-    @Value("${app.upload.dir}")
-    private String uploadDir;
+    private final MediaBlobRepository blobRepository;
+    private final MediaBlobStore blobStore;
+    private final MediaSegmentStore segmentStore;
+    private final MediaMetadataCache metadataCache;
+    private final MediaVariantService variantService;
+    private final ThreadPoolTaskExecutor mediaUploadExecutor;
+
+    public MediaService(
+            MediaRepository mediaRepository,
+            PostRepository postRepository,
+            MediaBlobRepository blobRepository,
+            MediaBlobStore blobStore,
+            MediaSegmentStore segmentStore,
+            MediaMetadataCache metadataCache,
+            MediaVariantService variantService,
+            @Qualifier("mediaUploadExecutor") ThreadPoolTaskExecutor mediaUploadExecutor) {
+        this.mediaRepository = mediaRepository;
+        this.postRepository = postRepository;
+        this.blobRepository = blobRepository;
+        this.blobStore = blobStore;
+        this.segmentStore = segmentStore;
+        this.metadataCache = metadataCache;
+        this.variantService = variantService;
+        this.mediaUploadExecutor = mediaUploadExecutor;
+    }
 
     private static final List<String> ALLOWED_IMAGE_TYPES = List.of(
             "image/jpeg", "image/jpg", "image/png", "image/gif", "image/webp");
@@ -41,6 +79,11 @@ public class MediaService {
     private static final List<String> ALLOWED_VIDEO_TYPES = List.of(
             "video/mp4", "video/mpeg", "video/webm");
 
+    private static final long MAX_FILE_SIZE = 10 * 1024 * 1024;
+
+    // Longest signature below; only this many bytes are read before the type is trusted
+    public static final int SIGNATURE_PEEK = 8;
+
     // File signatures for validation
     private static final Map<String, byte[]> FILE_SIGNATURES = Map.of(
             "image/jpeg", new byte[] { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF },
@@ -49,44 +92,129 @@ public class MediaService {
             "image/webp", new byte[] { (byte) 0x52, 0x49, 0x46, 0x46 },
             "video/mp4", new byte[] { (byte) 0x00, 0x00, 0x00, 0x20, (byte) 0x66, 0x74, 0x79, 0x70 });
 
+    /**
+     * Validates and stores the files concurrently on {@code mediaUploadExecutor},
+     * then inserts their media rows in one batch. If any file or the insert
+     * fails, the references already taken are released and blobs this upload
+     * created are deleted right away.
+     */
     public List<String> uploadFiles(List<MultipartFile> files, UUID postId) {
         Post post = postRepository.findById(postId)
                 .orElseThrow(() -> new ResourceNotFoundException("Post not found with id: " + postId));
 
-        List<String> uploadedFileNames = new ArrayList<>();
-
-        for (MultipartFile file : files) {
-            if (file.isEmpty()) {
-                continue;
+        List<MultipartFile> accepted = files.stream()
+                .filter(file -> !file.isEmpty())
+                .collect(Collectors.toList());
+        accepted.forEach(this::validateFile);
+
+        List<CompletableFuture<MediaBlob>> pending = accepted.stream()
+                .map(file -> CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return storeFile(file);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                }, mediaUploadExecutor))
+                .collect(Collectors.toList());
+
+        // Wait for every file, even after a failure, so nothing stored is left unaccounted for
+        List<MediaBlob> blobs = new ArrayList<>();
+        RuntimeException failure = null;
+        for (CompletableFuture<MediaBlob> future : pending) {
+            try {
+                blobs.add(future.join());
+            } catch (CompletionException ex) {
+                if (failure == null) {
+                    // Anything but an application exception (I/O, an Error from the worker) gets the generic message
+                    failure = ex.getCause() instanceof RuntimeException runtime
+                            && !(runtime instanceof UncheckedIOException)
+                            ? runtime
+                            : new RuntimeException("Could not store file. Please try again!", ex.getCause());
+                }
             }
+        }
+        if (failure != null) {
+            discard(blobs);
+            throw failure;
+        }
 
-            validateFile(file);
-
-            try {
-                String fileName = storeFile(file);
-                String filePath = getFilePath(fileName);
+        List<Media> media = new ArrayList<>(blobs.size());
+        for (int i = 0; i < blobs.size(); i++) {
+            MediaBlob blob = blobs.get(i);
+            media.add(Media.builder()
+                    .name(newFileName(accepted.get(i).getOriginalFilename()))
+                    .filePath(blob.getFilePath())
+                    .fileType(accepted.get(i).getContentType())
+                    .fileSize(blob.getFileSize())
+                    .checksum(blob.getChecksum())
+                    .post(post)
+                    .build());
+        }
 
-                Media media = Media.builder()
-                        .name(fileName)
-                        .filePath(filePath)
-                        .fileType(file.getContentType())
-                        .post(post)
-                        .build();
+        try {
+            // One transaction; inserts go out in JDBC batches (hibernate.jdbc.batch_size)
+            mediaRepository.saveAll(media);
+        } catch (RuntimeException ex) {
+            discard(blobs);
+            throw ex;
+        }
 
-                mediaRepository.save(media);
-                uploadedFileNames.add(fileName);
+        List<String> uploadedFileNames = new ArrayList<>(media.size());
+        for (int i = 0; i < media.size(); i++) {
+            String fileName = media.get(i).getName();
+            metadataCache.put(fileName, toMediaFile(blobs.get(i)));
+            variantService.requestVariants(blobs.get(i));
+            uploadedFileNames.add(fileName);
+        }
+        return uploadedFileNames;
+    }
 
-            } catch (IOException ex) {
-                throw new RuntimeException("Could not store file. Please try again!", ex);
-            }
+    /**
+     * Records a blob assembled elsewhere (a finished chunked upload) as media
+     * of the post, taking over the reference {@code blob} holds. Returns the
+     * new file name.
+     */
+    public String attachUpload(UUID postId, MediaBlob blob, String contentType, String originalFileName) {
+        Media media;
+        try {
+            Post post = postRepository.findById(postId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Post not found with id: " + postId));
+            media = mediaRepository.save(Media.builder()
+                    .name(newFileName(originalFileName))
+                    .filePath(blob.getFilePath())
+                    .fileType(contentType)
+                    .fileSize(blob.getFileSize())
+                    .checksum(blob.getChecksum())
+                    .post(post)
+                    .build());
+        } catch (RuntimeException ex) {
+            discard(List.of(blob));
+            throw ex;
         }
+        metadataCache.put(media.getName(), toMediaFile(blob));
+        variantService.requestVariants(blob);
+        return media.getName();
+    }
 
-        return uploadedFileNames;
+    private void discard(List<MediaBlob> blobs) {
+        if (blobs.isEmpty()) {
+            return;
+        }
+        Map<String, Long> references = blobs.stream()
+                .collect(Collectors.groupingBy(MediaBlob::getChecksum, Collectors.counting()));
+        blobStore.release(references);
+        blobStore.collect(references.keySet());
     }
 
     private void validateFile(MultipartFile file) {
-        String contentType = file.getContentType();
+        validateFile(file.getContentType(), file.getSize(), MAX_FILE_SIZE);
+    }
 
+    /**
+     * Checks the declared type and size of an upload. Videos may be up to
+     * {@code maxVideoSize}; images are always held to the 10MB limit.
+     */
+    public void validateFile(String contentType, long size, long maxVideoSize) {
         if (contentType == null) {
             throw new RuntimeException("File type cannot be determined");
         }
@@ -95,91 +223,230 @@ public class MediaService {
             throw new RuntimeException("File type not allowed. Only images and videos are supported.");
         }
 
-        // Max 10MB
-        if (file.getSize() > 10 * 1024 * 1024) {
-            throw new RuntimeException("File size exceeds maximum limit of 10MB");
-        }
-
-        // Validate file signature to prevent malicious files with changed extensions
-        try {
-            validateFileSignature(file, contentType);
-        } catch (IOException e) {
-            throw new RuntimeException("Unable to validate file content. Please try again.");
+        // Max 10MB (the declared size is checked here, the actual byte count while storing)
+        long maxSize = ALLOWED_VIDEO_TYPES.contains(contentType)
+                ? Math.max(maxVideoSize, MAX_FILE_SIZE)
+                : MAX_FILE_SIZE;
+        if (size > maxSize) {
+            throw new RuntimeException("File size exceeds maximum limit of " + maxSize / (1024 * 1024) + "MB");
         }
     }
 
-    private void validateFileSignature(MultipartFile file, String contentType) throws IOException {
+    // Only the header is compared, so the check works on the first bytes read from the stream
+    public void validateFileSignature(byte[] header, String contentType) {
         byte[] fileSignature = FILE_SIGNATURES.get(contentType);
         if (fileSignature == null) {
             // For content types without specific signatures, basic validation passed
             return;
         }
 
-        byte[] fileBytes = file.getBytes();
-        if (fileBytes.length < fileSignature.length) {
+        if (header.length < fileSignature.length) {
             throw new RuntimeException("File is too small to be a valid " + contentType + " file");
         }
 
         // Check if file starts with the expected signature
         for (int i = 0; i < fileSignature.length; i++) {
-            if (fileBytes[i] != fileSignature[i]) {
+            if (header[i] != fileSignature[i]) {
                 throw new RuntimeException("File content does not match the declared file type. " +
                         "This may be a malicious file with a changed extension.");
             }
         }
     }
 
-    private String storeFile(MultipartFile file) throws IOException {
-        String originalFileName = StringUtils.cleanPath(file.getOriginalFilename());
+    private String newFileName(String fileName) {
+        String originalFileName = StringUtils.cleanPath(fileName);
         String fileExtension = "";
 
         if (originalFileName.contains(".")) {
             fileExtension = originalFileName.substring(originalFileName.lastIndexOf("."));
         }
 
-        String fileName = UUID.randomUUID().toString() + fileExtension;
-
-        LocalDateTime now = LocalDateTime.now();
-        String yearMonth = now.format(DateTimeFormatter.ofPattern("yyyy/MM"));
-        Path uploadPath = Paths.get(uploadDir, yearMonth);
+        return UUID.randomUUID().toString() + fileExtension;
+    }
 
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
+    /**
+     * Streams the upload to a temp file in one pass: the header is peeked for
+     * the signature check, the rest is transferred channel to channel, and
+     * size and SHA-256 are computed on the way. Heap use does not grow with
+     * the file size. The temp file then becomes (or is dropped in favour of)
+     * the blob for its checksum.
+     */
+    private MediaBlob storeFile(MultipartFile file) throws IOException {
+        Path tempFile = blobStore.newTempFile();
+        MessageDigest digest = newSha256();
+        long size;
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest);
+                FileChannel out = FileChannel.open(tempFile, StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.WRITE)) {
+            byte[] header = in.readNBytes(SIGNATURE_PEEK);
+            validateFileSignature(header, file.getContentType());
+            out.write(ByteBuffer.wrap(header));
+
+            // Allow one byte past the limit so an oversized stream is detected without reading all of it
+            ReadableByteChannel source = Channels.newChannel(in);
+            long position = header.length;
+            long transferred;
+            while (position <= MAX_FILE_SIZE
+                    && (transferred = out.transferFrom(source, position, MAX_FILE_SIZE + 1 - position)) > 0) {
+                position += transferred;
+            }
+            size = position;
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(tempFile);
+            throw ex;
         }
 
-        Path targetLocation = uploadPath.resolve(fileName);
-        Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+        if (size > MAX_FILE_SIZE) {
+            Files.deleteIfExists(tempFile);
+            throw new RuntimeException("File size exceeds maximum limit of 10MB");
+        }
 
-        return fileName;
+        try {
+            return blobStore.acquire(tempFile, HexFormat.of().formatHex(digest.digest()), size,
+                    file.getContentType());
+        } catch (RuntimeException ex) {
+            Files.deleteIfExists(tempFile);
+            throw ex;
+        }
     }
 
-    private String getFilePath(String fileName) {
-        LocalDateTime now = LocalDateTime.now();
-        String yearMonth = now.format(DateTimeFormatter.ofPattern("yyyy/MM"));
-        return uploadDir + "/" + yearMonth + "/" + fileName;
+    static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
     }
 
-    public Resource loadFileAsResource(String fileName) {
-        try {
-            Media media = mediaRepository.findByName(fileName)
-                    .orElseThrow(() -> new ResourceNotFoundException("File not found: " + fileName));
+    /**
+     * Resolves a stored file for serving, normally from
+     * {@link MediaMetadataCache} without touching the database.
+     */
+    public MediaFile getMediaFile(String fileName) {
+        return metadataCache.get(fileName, this::loadMediaFile);
+    }
 
-            Path filePath = Paths.get(media.getFilePath()).normalize();
-            Resource resource = new UrlResource(filePath.toUri());
+    /**
+     * Resolves the file a verified signed URL describes. The token carries
+     * all a media row would, so apart from packed blobs (whose location can
+     * move) this needs no database and at most a stat of the file.
+     */
+    public MediaFile getMediaFile(MediaUrlSigner.SignedMedia media) {
+        // Variants generated after this are added to the cached entry by MediaVariantService
+        return metadataCache.get(media.getName(), name -> loadSignedMediaFile(media));
+    }
 
-            if (resource.exists()) {
-                return resource;
-            } else {
-                throw new ResourceNotFoundException("File not found: " + fileName);
-            }
-        } catch (Exception ex) {
-            throw new ResourceNotFoundException("File not found: " + fileName);
+    /**
+     * Deletes the media rows of a post, releases their blob references and
+     * drops them from the metadata cache once the deletion commits.
+     */
+    @Transactional
+    public void deleteMediaForPost(UUID postId) {
+        List<Media> media = mediaRepository.findByPostId(postId);
+        List<String> names = media.stream()
+                .map(Media::getName)
+                .collect(Collectors.toList());
+        Map<String, Long> references = media.stream()
+                .filter(item -> item.getChecksum() != null)
+                .collect(Collectors.groupingBy(Media::getChecksum, Collectors.counting()));
+
+        mediaRepository.deleteByPostId(postId);
+        if (!references.isEmpty()) {
+            blobStore.release(references);
         }
+        AfterCommit.run(() -> metadataCache.invalidateAll(names));
     }
 
-    public String getFileContentType(String fileName) {
+    private MediaFile loadMediaFile(String fileName) {
         Media media = mediaRepository.findByName(fileName)
                 .orElseThrow(() -> new ResourceNotFoundException("File not found: " + fileName));
-        return media.getFileType();
+
+        if (media.getChecksum() != null) {
+            MediaFile shared = metadataCache.getContent(media.getChecksum());
+            if (shared != null) {
+                return shared;
+            }
+            Optional<MediaBlob> blob = blobRepository.findById(media.getChecksum());
+            if (blob.isPresent()) {
+                return toMediaFile(blob.get());
+            }
+        }
+
+        return legacyMediaFile(media.getName(), media.getFilePath(), media.getFileType(),
+                media.getCreatedAt() != null ? toEpochMilli(media.getCreatedAt()) : null);
+    }
+
+    private MediaFile loadSignedMediaFile(MediaUrlSigner.SignedMedia media) {
+        if (media.getChecksum() == null) {
+            return legacyMediaFile(media.getName(), media.getFilePath(), media.getContentType(),
+                    media.getCreatedAt());
+        }
+
+        MediaFile shared = metadataCache.getContent(media.getChecksum());
+        if (shared != null) {
+            return shared;
+        }
+        Path path = Paths.get(media.getFilePath()).normalize();
+        if (Files.isRegularFile(path)) {
+            return MediaFile.builder()
+                    .key(media.getChecksum())
+                    .path(path)
+                    .originalPath(path)
+                    .contentType(media.getContentType())
+                    .size(media.getSize())
+                    .etag("\"" + media.getChecksum() + "\"")
+                    .lastModified(media.getCreatedAt())
+                    .variants(media.getContentType().startsWith("image/")
+                            ? variantService.findVariants(path)
+                            : Collections.emptyNavigableMap())
+                    .build();
+        }
+
+        // Packed into a segment (or moved there by compaction): only the blob row knows where
+        return blobRepository.findById(media.getChecksum())
+                .map(this::toMediaFile)
+                .orElseThrow(() -> new ResourceNotFoundException("File not found: " + media.getName()));
+    }
+
+    // Stored before deduplication: the file is the row's own, validated by name, size and mtime
+    private MediaFile legacyMediaFile(String name, String storedPath, String contentType, Long createdAt) {
+        Path filePath = Paths.get(storedPath).normalize();
+        try {
+            long size = Files.size(filePath);
+            long modified = Files.getLastModifiedTime(filePath).toMillis();
+            return MediaFile.builder()
+                    .key(name)
+                    .path(filePath)
+                    .originalPath(filePath)
+                    .contentType(contentType)
+                    .size(size)
+                    .etag("\"" + name + "-" + size + "-" + modified + "\"")
+                    .lastModified(createdAt != null ? createdAt : modified)
+                    .build();
+        } catch (IOException ex) {
+            throw new ResourceNotFoundException("File not found: " + name);
+        }
+    }
+
+    // Every name pointing at a blob gets the same key, ETag and Last-Modified
+    private MediaFile toMediaFile(MediaBlob blob) {
+        boolean packed = blob.getSegmentId() != null;
+        Path originalPath = Paths.get(blob.getFilePath()).normalize();
+        return MediaFile.builder()
+                .key(blob.getChecksum())
+                .path(packed ? segmentStore.segmentPath(blob.getSegmentId()) : originalPath)
+                .originalPath(originalPath)
+                .segmentId(blob.getSegmentId())
+                .offset(packed ? blob.getSegmentOffset() : 0)
+                .contentType(blob.getContentType())
+                .size(blob.getFileSize())
+                .etag("\"" + blob.getChecksum() + "\"")
+                .lastModified(toEpochMilli(blob.getCreatedAt()))
+                .variants(MediaFile.parseVariants(blob.getVariants()))
+                .build();
+    }
+
+    private static long toEpochMilli(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
     }
 }
@@ -0,0 +1,320 @@
+package com.madagha.backend.media.service;
+
+import com.madagha.backend.common.exception.BadRequestException;
+import com.madagha.backend.common.exception.ConflictException;
+import com.madagha.backend.common.exception.ResourceNotFoundException;
+import com.madagha.backend.common.exception.UnauthorizedException;
+import com.madagha.backend.media.dto.MediaUploadRequest;
+import com.madagha.backend.media.dto.MediaUploadStatus;
+import com.madagha.backend.media.entity.MediaBlob;
+import com.madagha.backend.media.entity.MediaUploadSession;
+import com.madagha.backend.media.repository.MediaUploadSessionRepository;
+import com.madagha.backend.post.entity.Post;
+import com.madagha.backend.post.repository.PostRepository;
+import com.madagha.backend.user.entity.User;
+import com.madagha.backend.user.service.UserService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Resumable uploads for files too large for one multipart request. The
+ * client starts a session, PUTs chunks at byte offsets and completes it; a
+ * dropped connection only costs the chunk in flight, since the session
+ * reports how far the file is filled.
+ * <p>
+ * The file is set to its final length up front and every chunk is a
+ * positional write into it, so a retried chunk simply overwrites its range.
+ * The length is only set, not allocated: the file is sparse and no disk
+ * space is reserved for the session.
+ * <p>
+ * Completing claims the session before reading anything, then hashes the
+ * file while copying it to one that only the completing request writes. A
+ * chunk still in flight can change the session file but never the bytes
+ * that are hashed and stored. The signature is checked on the first chunk,
+ * and again on the copy in case a later chunk rewrote the header.
+ */
+@Slf4j
+@Service
+public class MediaUploadSessionService {
+
+    private static final int HASH_BUFFER_SIZE = 256 * 1024;
+
+    private final MediaUploadSessionRepository sessionRepository;
+    private final PostRepository postRepository;
+    private final UserService userService;
+    private final MediaService mediaService;
+    private final MediaBlobStore blobStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final Path tmpDirectory;
+    private final long maxFileSize;
+    private final long maxChunkSize;
+    private final Duration sessionTtl;
+
+    public MediaUploadSessionService(
+            MediaUploadSessionRepository sessionRepository,
+            PostRepository postRepository,
+            UserService userService,
+            MediaService mediaService,
+            MediaBlobStore blobStore,
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.upload.dir}") String uploadDir,
+            @Value("${app.media.chunked.max-file-size:524288000}") long maxFileSize,
+            @Value("${app.media.chunked.max-chunk-size:8388608}") long maxChunkSize,
+            @Value("${app.media.chunked.session-ttl-ms:86400000}") long sessionTtlMs) {
+        this.sessionRepository = sessionRepository;
+        this.postRepository = postRepository;
+        this.userService = userService;
+        this.mediaService = mediaService;
+        this.blobStore = blobStore;
+        this.jdbcTemplate = jdbcTemplate;
+        this.tmpDirectory = Paths.get(uploadDir, "tmp");
+        this.maxFileSize = maxFileSize;
+        this.maxChunkSize = maxChunkSize;
+        this.sessionTtl = Duration.ofMillis(sessionTtlMs);
+    }
+
+    public MediaUploadStatus startUpload(MediaUploadRequest request, String username) throws IOException {
+        mediaService.validateFile(request.getContentType(), request.getSize(), maxFileSize);
+
+        Post post = postRepository.findById(request.getPostId())
+                .orElseThrow(() -> new ResourceNotFoundException("Post not found with id: " + request.getPostId()));
+        User user = userService.getCurrentUser(username);
+        if (!post.getOwner().getId().equals(user.getId())) {
+            throw new UnauthorizedException("You are not authorized to add media to this post");
+        }
+
+        Files.createDirectories(tmpDirectory);
+        // Only turns away uploads that cannot fit now; concurrent sessions can still fill the disk
+        if (Files.getFileStore(tmpDirectory).getUsableSpace() < request.getSize()) {
+            throw new RuntimeException("Not enough storage space for this upload");
+        }
+
+        UUID id = UUID.randomUUID();
+        Path file = tmpDirectory.resolve(id + ".upload");
+        // Fixed (sparse) length from the start, so chunks never extend the file and a retry lands where the first try did
+        try (RandomAccessFile allocation = new RandomAccessFile(file.toFile(), "rw")) {
+            allocation.setLength(request.getSize());
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        MediaUploadSession session = sessionRepository.save(MediaUploadSession.builder()
+                .id(id)
+                .postId(post.getId())
+                .ownerId(user.getId())
+                .fileName(request.getFileName())
+                .contentType(request.getContentType())
+                .fileSize(request.getSize())
+                .tempPath(file.toString())
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+        return toStatus(session, 0);
+    }
+
+    public MediaUploadStatus getUpload(UUID uploadId, String username) {
+        MediaUploadSession session = findSession(uploadId, username);
+        return toStatus(session, session.getReceivedBytes());
+    }
+
+    /**
+     * Writes one chunk at {@code offset}, which may not lie past what has been
+     * received so far. Returns the new resume offset; bytes are forced to disk
+     * before it is reported.
+     */
+    public MediaUploadStatus writeChunk(UUID uploadId, long offset, InputStream body, String username)
+            throws IOException {
+        MediaUploadSession session = findSession(uploadId, username);
+        if (offset < 0 || offset > session.getReceivedBytes()) {
+            throw new ConflictException("Chunk must start at or before offset " + session.getReceivedBytes());
+        }
+        if (offset >= session.getFileSize()) {
+            throw new BadRequestException("Offset is past the end of the file");
+        }
+
+        long end = Math.min(session.getFileSize(), offset + maxChunkSize);
+        long position = offset;
+        FileChannel out;
+        try {
+            out = FileChannel.open(Paths.get(session.getTempPath()), StandardOpenOption.WRITE);
+        } catch (NoSuchFileException ex) {
+            // Completed or cancelled since the session was read
+            throw new ResourceNotFoundException("Upload not found: " + uploadId);
+        }
+        try (out) {
+            if (offset == 0) {
+                byte[] header = body.readNBytes((int) Math.min(MediaService.SIGNATURE_PEEK, end));
+                try {
+                    mediaService.validateFileSignature(header, session.getContentType());
+                } catch (RuntimeException ex) {
+                    discard(session);
+                    throw ex;
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(header);
+                while (buffer.hasRemaining()) {
+                    position += out.write(buffer, position);
+                }
+            }
+
+            ReadableByteChannel source = Channels.newChannel(body);
+            long transferred;
+            while (position < end && (transferred = out.transferFrom(source, position, end - position)) > 0) {
+                position += transferred;
+            }
+            if (position == end && body.read() != -1) {
+                throw new BadRequestException("Chunk is larger than " + (end - offset) + " bytes");
+            }
+            out.force(false);
+        }
+
+        List<Long> received = jdbcTemplate.queryForList(
+                "UPDATE media_upload_sessions SET received_bytes = GREATEST(received_bytes, ?), updated_at = ? "
+                        + "WHERE id = ? RETURNING received_bytes",
+                Long.class, position, Timestamp.valueOf(LocalDateTime.now()), uploadId);
+        if (received.isEmpty()) {
+            throw new ResourceNotFoundException("Upload not found: " + uploadId);
+        }
+        return toStatus(session, received.get(0));
+    }
+
+    /**
+     * Claims the session, hashes the assembled file into a private copy,
+     * hands that to {@link MediaBlobStore} and attaches it to the post.
+     * Returns the new media file name.
+     */
+    public String completeUpload(UUID uploadId, String username) throws IOException {
+        MediaUploadSession session = findSession(uploadId, username);
+        if (session.getReceivedBytes() < session.getFileSize()) {
+            throw new ConflictException("Upload is incomplete: " + session.getReceivedBytes() + " of "
+                    + session.getFileSize() + " bytes received");
+        }
+
+        // Whoever deletes the row completes the upload; chunks and concurrent retries find it gone from here on
+        if (jdbcTemplate.update("DELETE FROM media_upload_sessions WHERE id = ?", uploadId) == 0) {
+            throw new ResourceNotFoundException("Upload not found: " + uploadId);
+        }
+
+        Path file = Paths.get(session.getTempPath());
+        Path copy = blobStore.newTempFile();
+        MessageDigest digest = MediaService.newSha256();
+        byte[] header = new byte[(int) Math.min(MediaService.SIGNATURE_PEEK, session.getFileSize())];
+        try {
+            // A chunk that passed its session check before the claim may still be writing to the session
+            // file, so the stored bytes are exactly the ones hashed here
+            long copied = 0;
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ);
+                    FileChannel out = FileChannel.open(copy, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(HASH_BUFFER_SIZE);
+                while (copied < session.getFileSize() && in.read(buffer) > 0) {
+                    buffer.flip();
+                    if (buffer.remaining() > session.getFileSize() - copied) {
+                        buffer.limit((int) (session.getFileSize() - copied));
+                    }
+                    if (copied < header.length) {
+                        buffer.duplicate().get(header, (int) copied,
+                                (int) Math.min(header.length - copied, buffer.remaining()));
+                    }
+                    digest.update(buffer.duplicate());
+                    while (buffer.hasRemaining()) {
+                        copied += out.write(buffer);
+                    }
+                    buffer.clear();
+                }
+            }
+            if (copied != session.getFileSize()) {
+                throw new ConflictException("Upload file is shorter than " + session.getFileSize() + " bytes");
+            }
+            mediaService.validateFileSignature(header, session.getContentType());
+        } catch (IOException | RuntimeException ex) {
+            deleteQuietly(copy);
+            throw ex;
+        } finally {
+            deleteQuietly(file);
+        }
+
+        MediaBlob blob;
+        try {
+            blob = blobStore.acquire(copy, HexFormat.of().formatHex(digest.digest()), session.getFileSize(),
+                    session.getContentType());
+        } catch (RuntimeException ex) {
+            deleteQuietly(copy);
+            throw ex;
+        }
+        return mediaService.attachUpload(session.getPostId(), blob, session.getContentType(),
+                session.getFileName());
+    }
+
+    public void cancelUpload(UUID uploadId, String username) {
+        discard(findSession(uploadId, username));
+    }
+
+    // Abandoned sessions go with their files; the media reclaimer would delete the files anyway
+    @Scheduled(cron = "${app.media.chunked.cleanup-cron:0 30 * * * *}")
+    public void expireSessions() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(sessionTtl);
+        List<Map<String, Object>> expired = jdbcTemplate.queryForList(
+                "DELETE FROM media_upload_sessions WHERE updated_at < ? RETURNING temp_path",
+                Timestamp.valueOf(cutoff));
+        for (Map<String, Object> row : expired) {
+            deleteQuietly(Paths.get((String) row.get("temp_path")));
+        }
+        if (!expired.isEmpty()) {
+            log.info("Expired {} abandoned chunked uploads", expired.size());
+        }
+    }
+
+    private MediaUploadSession findSession(UUID uploadId, String username) {
+        MediaUploadSession session = sessionRepository.findById(uploadId)
+                .orElseThrow(() -> new ResourceNotFoundException("Upload not found: " + uploadId));
+        User user = userService.getCurrentUser(username);
+        if (!session.getOwnerId().equals(user.getId())) {
+            throw new ResourceNotFoundException("Upload not found: " + uploadId);
+        }
+        return session;
+    }
+
+    private void discard(MediaUploadSession session) {
+        jdbcTemplate.update("DELETE FROM media_upload_sessions WHERE id = ?", session.getId());
+        deleteQuietly(Paths.get(session.getTempPath()));
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            log.warn("Could not delete upload file {}: {}", file, ex.getMessage());
+        }
+    }
+
+    private MediaUploadStatus toStatus(MediaUploadSession session, long offset) {
+        return MediaUploadStatus.builder()
+                .uploadId(session.getId())
+                .offset(offset)
+                .size(session.getFileSize())
+                .maxChunkSize(maxChunkSize)
+                .build();
+    }
+}
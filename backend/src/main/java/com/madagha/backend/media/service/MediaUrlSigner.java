@@ -0,0 +1,176 @@
+package com.madagha.backend.media.service;
+
+import com.madagha.backend.common.exception.ResourceNotFoundException;
+import com.madagha.backend.common.exception.UnauthorizedException;
+import com.madagha.backend.media.entity.Media;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * Builds media URLs whose token describes the stored file (name, storage
+ * path, content type, size), authenticated with an HMAC. Serving such a URL
+ * only has to check the tag, so it needs no media row lookup and works on
+ * nodes without a database connection.
+ * <p>
+ * The token is binary, base64url encoded. Blob paths are left out because
+ * they follow from the checksum. Expiry is rounded up to a whole TTL window
+ * so a post keeps the same URLs (and browser cache entries) for a while
+ * instead of getting new ones on every fetch; a URL stays valid for between
+ * one and two TTLs.
+ * <p>
+ * The TTL is the only revocation there is: a URL handed out before its
+ * media was deleted or its post hidden keeps working until it expires. A
+ * TTL of 0 signs URLs that never expire, so they can never be revoked.
+ */
+@Component
+public class MediaUrlSigner {
+
+    public static final String PATH = "/api/media/s/";
+
+    private static final int VERSION = 1;
+    private static final int EXPIRES = 1;
+    private static final int CHECKSUM = 2;
+    private static final int BLOB_PATH = 4;
+    // A truncated HMAC-SHA256; 128 bits is plenty against forgery
+    private static final int TAG_LENGTH = 16;
+
+    private final MediaBlobStore blobStore;
+    private final SecretKeySpec key;
+    private final long ttlSeconds;
+    private final ThreadLocal<Mac> macs;
+
+    public MediaUrlSigner(
+            MediaBlobStore blobStore,
+            @Value("${app.media.signed-urls.secret:${app.jwt.secret}}") String secret,
+            @Value("${app.media.signed-urls.ttl-ms:86400000}") long ttlMs) {
+        this.blobStore = blobStore;
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.ttlSeconds = ttlMs / 1000;
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalStateException("HmacSHA256 is not available", ex);
+            }
+        });
+    }
+
+    /** The URL to serve {@code media} from; the trailing name keeps the extension visible. */
+    public String url(Media media) {
+        return PATH + sign(media) + "/" + media.getName();
+    }
+
+    public String sign(Media media) {
+        String checksum = media.getChecksum();
+        boolean blobPath = checksum != null && media.getFilePath().equals(blobStore.blobPath(checksum));
+        int flags = (ttlSeconds > 0 ? EXPIRES : 0)
+                | (checksum != null ? CHECKSUM : 0)
+                | (blobPath ? BLOB_PATH : 0);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeByte(flags);
+            if (ttlSeconds > 0) {
+                long now = System.currentTimeMillis() / 1000;
+                out.writeLong((now / ttlSeconds + 2) * ttlSeconds);
+            }
+            out.writeUTF(media.getName());
+            if (checksum != null) {
+                out.write(HexFormat.of().parseHex(checksum));
+            }
+            if (!blobPath) {
+                out.writeUTF(media.getFilePath());
+            }
+            out.writeUTF(media.getFileType());
+            out.writeLong(media.getFileSize() != null ? media.getFileSize() : -1);
+            out.writeLong(media.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        byte[] payload = bytes.toByteArray();
+        byte[] token = Arrays.copyOf(payload, payload.length + TAG_LENGTH);
+        System.arraycopy(tag(payload, payload.length), 0, token, payload.length, TAG_LENGTH);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+    }
+
+    /**
+     * Checks the tag and expiry of {@code token} and returns what it
+     * describes. Anything that does not verify is reported as not found.
+     */
+    public SignedMedia verify(String token) {
+        byte[] raw;
+        try {
+            raw = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException ex) {
+            throw new ResourceNotFoundException("File not found");
+        }
+        int length = raw.length - TAG_LENGTH;
+        if (length <= 0 || !MessageDigest.isEqual(tag(raw, length), Arrays.copyOfRange(raw, length, raw.length))) {
+            throw new ResourceNotFoundException("File not found");
+        }
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw, 0, length))) {
+            if (in.readUnsignedByte() != VERSION) {
+                throw new ResourceNotFoundException("File not found");
+            }
+            int flags = in.readUnsignedByte();
+            if ((flags & EXPIRES) != 0 && in.readLong() < System.currentTimeMillis() / 1000) {
+                throw new UnauthorizedException("Media link has expired");
+            }
+            String name = in.readUTF();
+            String checksum = null;
+            if ((flags & CHECKSUM) != 0) {
+                byte[] digest = new byte[32];
+                in.readFully(digest);
+                checksum = HexFormat.of().formatHex(digest);
+            }
+            String filePath = (flags & BLOB_PATH) != 0 ? blobStore.blobPath(checksum) : in.readUTF();
+            return new SignedMedia(name, checksum, filePath, in.readUTF(), in.readLong(), in.readLong());
+        } catch (IOException ex) {
+            throw new ResourceNotFoundException("File not found");
+        }
+    }
+
+    private byte[] tag(byte[] payload, int length) {
+        Mac mac = macs.get();
+        mac.update(payload, 0, length);
+        return Arrays.copyOf(mac.doFinal(), TAG_LENGTH);
+    }
+
+    /** What a verified token says about the stored file. */
+    @Getter
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    public static final class SignedMedia {
+        private final String name;
+        // Null for files stored before deduplication
+        private final String checksum;
+        private final String filePath;
+        private final String contentType;
+        // -1 when the row had no size recorded
+        private final long size;
+        private final long createdAt;
+    }
+}
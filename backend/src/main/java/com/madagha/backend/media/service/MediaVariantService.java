@@ -0,0 +1,328 @@
+package com.madagha.backend.media.service;
+
+import com.madagha.backend.media.entity.MediaBlob;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Produces resized copies of uploaded JPEG and PNG images on the
+ * {@code mediaVariantExecutor} pool. Variants belong to the blob, so content
+ * shared by many posts is resized once. Until a blob's variants are recorded
+ * the original is served.
+ */
+@Slf4j
+@Service
+public class MediaVariantService {
+
+    private static final Set<String> SUPPORTED_TYPES = Set.of("image/jpeg", "image/jpg", "image/png");
+
+    // Enough of a file to cover the segments ahead of the image data, EXIF included
+    private static final int METADATA_HEAD = 128 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MediaMetadataCache metadataCache;
+    private final MediaSegmentStore segmentStore;
+    private final TaskExecutor executor;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final int[] widths;
+    private final long maxPixels;
+    private final float jpegQuality;
+
+    public MediaVariantService(
+            JdbcTemplate jdbcTemplate,
+            MediaMetadataCache metadataCache,
+            MediaSegmentStore segmentStore,
+            @Qualifier("mediaVariantExecutor") TaskExecutor executor,
+            @Value("${app.media.variants.widths:320,640,1280}") int[] widths,
+            @Value("${app.media.variants.max-pixels:50000000}") long maxPixels,
+            @Value("${app.media.variants.jpeg-quality:0.82}") float jpegQuality) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.metadataCache = metadataCache;
+        this.segmentStore = segmentStore;
+        this.executor = executor;
+        this.widths = Arrays.stream(widths).sorted().toArray();
+        this.maxPixels = maxPixels;
+        this.jpegQuality = jpegQuality;
+    }
+
+    /**
+     * The variants present on disk next to {@code original}, for callers that
+     * know the file but not its blob row.
+     */
+    public NavigableMap<Integer, Long> findVariants(Path original) {
+        NavigableMap<Integer, Long> variants = new TreeMap<>();
+        for (int width : widths) {
+            Path variant = MediaFile.variantPath(original, width);
+            try {
+                variants.put(width, Files.size(variant));
+            } catch (IOException ex) {
+                // Not generated (or not needed for an image this narrow)
+            }
+        }
+        return Collections.unmodifiableNavigableMap(variants);
+    }
+
+    /**
+     * Queues variant generation for a blob that has none recorded yet. A full
+     * queue is not an error; the image just keeps being served as uploaded.
+     */
+    public void requestVariants(MediaBlob blob) {
+        if (blob.getVariants() != null || !SUPPORTED_TYPES.contains(blob.getContentType())
+                || !inFlight.add(blob.getChecksum())) {
+            return;
+        }
+        try {
+            executor.execute(() -> generate(blob));
+        } catch (TaskRejectedException ex) {
+            inFlight.remove(blob.getChecksum());
+            log.warn("Variant queue full, serving {} without variants", blob.getChecksum());
+        }
+    }
+
+    private void generate(MediaBlob blob) {
+        try {
+            Map<Integer, Long> variants = resize(blob);
+            String value = MediaFile.formatVariants(variants);
+            jdbcTemplate.update("UPDATE media_blobs SET variants = ? WHERE checksum = ?", value,
+                    blob.getChecksum());
+            metadataCache.update(blob.getChecksum(),
+                    file -> file.toBuilder().variants(MediaFile.parseVariants(value)).build());
+        } catch (Exception ex) {
+            // Recorded as having no variants so a broken image is not retried on every upload
+            log.warn("Could not generate variants for {}: {}", blob.getChecksum(), ex.getMessage());
+            jdbcTemplate.update("UPDATE media_blobs SET variants = '' WHERE checksum = ?", blob.getChecksum());
+        } finally {
+            inFlight.remove(blob.getChecksum());
+        }
+    }
+
+    private Map<Integer, Long> resize(MediaBlob blob) throws IOException {
+        Map<Integer, Long> variants = new TreeMap<>();
+        BufferedImage source = read(blob);
+        if (source == null) {
+            return variants;
+        }
+
+        // Variants are files next to the blob's own path, also for content packed into a segment
+        Path original = Paths.get(blob.getFilePath());
+        Files.createDirectories(original.getParent());
+        boolean png = "image/png".equals(MediaFile.variantContentType(blob.getContentType()));
+        for (int width : widths) {
+            if (width >= source.getWidth()) {
+                break;
+            }
+            int height = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+            BufferedImage scaled = new BufferedImage(width, height,
+                    png ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = scaled.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                        RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(source, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+
+            Path target = MediaFile.variantPath(original, width);
+            Path temp = Paths.get(target + ".part");
+            write(scaled, png, temp);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            variants.put(width, Files.size(target));
+        }
+        return variants;
+    }
+
+    /**
+     * Decodes the image, subsampling on read when it is much wider than the
+     * largest variant so big photos never need a full-resolution raster.
+     * The result is turned upright per its EXIF orientation, since variants
+     * are written without the metadata that would tell a browser to.
+     */
+    private BufferedImage read(MediaBlob blob) throws IOException {
+        Object source = Paths.get(blob.getFilePath()).toFile();
+        byte[] head;
+        if (blob.getSegmentId() != null) {
+            ByteBuffer packed = segmentStore.read(blob.getSegmentId(), blob.getSegmentOffset(), blob.getFileSize());
+            byte[] bytes = new byte[packed.remaining()];
+            packed.get(bytes);
+            source = new ByteArrayInputStream(bytes);
+            head = bytes;
+        } else {
+            try (InputStream in = Files.newInputStream(Paths.get(blob.getFilePath()))) {
+                head = in.readNBytes(METADATA_HEAD);
+            }
+        }
+        try (ImageInputStream input = ImageIO.createImageInputStream(source)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new IOException("Image of " + width + "x" + height + " exceeds the pixel limit");
+                }
+
+                int orientation = orientation(head);
+                int uprightWidth = orientation >= 5 ? height : width;
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, uprightWidth / (widths[widths.length - 1] * 2));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return orient(reader.read(0, param), orientation);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * The EXIF Orientation (1 to 8) of a JPEG, from the APP1 segment among
+     * the markers at the start of {@code head}; 1, upright, when there is
+     * none. Parsed by hand because the JDK reader rejects files that put
+     * APP1 ahead of the JFIF marker, which some cameras do.
+     */
+    static int orientation(byte[] head) {
+        if (head.length < 4 || (head[0] & 0xFF) != 0xFF || (head[1] & 0xFF) != 0xD8) {
+            return 1;
+        }
+        int position = 2;
+        while (position + 4 <= head.length) {
+            if ((head[position] & 0xFF) != 0xFF) {
+                return 1;
+            }
+            int marker = head[position + 1] & 0xFF;
+            if (marker == 0xFF) {
+                // Fill byte before a marker
+                position++;
+                continue;
+            }
+            if (marker == 0xDA || marker == 0xD9) {
+                // Image data starts; metadata segments all come before it
+                return 1;
+            }
+            int length = ((head[position + 2] & 0xFF) << 8) | (head[position + 3] & 0xFF);
+            if (marker == 0xE1 && length > 2) {
+                int orientation = exifOrientation(ByteBuffer.wrap(head, position + 4,
+                        Math.min(length - 2, head.length - position - 4)).slice());
+                if (orientation != 0) {
+                    return orientation;
+                }
+            }
+            position += 2 + length;
+        }
+        return 1;
+    }
+
+    // Walks IFD0 of an "Exif\0\0" APP1 payload for tag 0x0112; 0 when it is not there
+    private static int exifOrientation(ByteBuffer app1) {
+        if (app1.limit() < 14 || app1.get(0) != 'E' || app1.get(1) != 'x' || app1.get(2) != 'i'
+                || app1.get(3) != 'f') {
+            return 0;
+        }
+        ByteBuffer tiff = app1.position(6).slice();
+        if (tiff.get(0) == 'I' && tiff.get(1) == 'I') {
+            tiff.order(ByteOrder.LITTLE_ENDIAN);
+        } else if (tiff.get(0) != 'M' || tiff.get(1) != 'M') {
+            return 0;
+        }
+        int ifd = tiff.getInt(4);
+        if (ifd < 8 || ifd > tiff.limit() - 2) {
+            return 0;
+        }
+        int entries = tiff.getShort(ifd) & 0xFFFF;
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry > tiff.limit() - 12) {
+                return 0;
+            }
+            if ((tiff.getShort(entry) & 0xFFFF) == 0x0112) {
+                int value = tiff.getShort(entry + 8) & 0xFFFF;
+                return value >= 1 && value <= 8 ? value : 0;
+            }
+        }
+        return 0;
+    }
+
+    // Maps the stored pixels to the upright image for each EXIF orientation
+    private static BufferedImage orient(BufferedImage image, int orientation) {
+        if (orientation <= 1) {
+            return image;
+        }
+        int w = image.getWidth();
+        int h = image.getHeight();
+        AffineTransform transform = switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, w, 0);
+            case 3 -> new AffineTransform(-1, 0, 0, -1, w, h);
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, h);
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);
+            case 6 -> new AffineTransform(0, 1, -1, 0, h, 0);
+            case 7 -> new AffineTransform(0, -1, -1, 0, h, w);
+            default -> new AffineTransform(0, -1, 1, 0, 0, w);
+        };
+        boolean swap = orientation >= 5;
+        BufferedImage upright = new BufferedImage(swap ? h : w, swap ? w : h,
+                image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = upright.createGraphics();
+        try {
+            graphics.drawImage(image, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return upright;
+    }
+
+    private void write(BufferedImage image, boolean png, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(png ? "png" : "jpeg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (!png) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(jpegQuality);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+}
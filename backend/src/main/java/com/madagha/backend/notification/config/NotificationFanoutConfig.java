@@ -0,0 +1,38 @@
+package com.madagha.backend.notification.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Slf4j
+@Configuration
+@EnableAsync
+public class NotificationFanoutConfig {
+
+    // A full queue drops that post's notifications instead of failing the request that published it
+    @Bean
+    public ThreadPoolTaskExecutor notificationFanoutExecutor(
+            MeterRegistry meterRegistry,
+            @Value("${app.notifications.fanout.threads:2}") int threads,
+            @Value("${app.notifications.fanout.queue-capacity:1000}") int queueCapacity) {
+        Counter rejected = meterRegistry.counter("notifications.fanout.rejected");
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            rejected.increment();
+            log.warn("Notification fan-out queue full ({} queued), skipping a published post",
+                    pool.getQueue().size());
+        });
+        executor.setThreadNamePrefix("notification-fanout-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -0,0 +1,284 @@
+package com.madagha.backend.notification.config;
+
+import com.madagha.backend.notification.entity.Notification;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Owns the notifications table, which is range partitioned by month on
+ * created_at. Creates the table (converting a plain ddl-auto table in place),
+ * keeps partitions created ahead of time and applies retention by dropping
+ * whole partitions instead of deleting rows. The actor rows of grouped
+ * notifications are partitioned the same way and dropped with them.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+public class NotificationPartitionManager implements InitializingBean {
+
+    public static final String TABLE = "notifications";
+    public static final String ACTOR_TABLE = "notification_actors";
+
+    private static final String LEGACY_TABLE = "notifications_legacy";
+    private static final String LEGACY_ACTOR_TABLE = "notification_actors_legacy";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("'y'yyyy'm'MM");
+    private static final Pattern PARTITION_NAME = Pattern.compile(TABLE + "_y(\\d{4})m(\\d{2})");
+    private static final List<String> COLUMNS = List.of(
+            "id", "user_id", "type", "message", "reference_id", "is_read", "actor_count", "recent_actor_ids",
+            "created_at", "updated_at");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int monthsAhead;
+    private final int readRetentionMonths;
+    private final int maxRetentionMonths;
+
+    public NotificationPartitionManager(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.notifications.partitions.months-ahead:2}") int monthsAhead,
+            @Value("${app.notifications.retention.read-months:6}") int readRetentionMonths,
+            @Value("${app.notifications.retention.max-months:24}") int maxRetentionMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.monthsAhead = monthsAhead;
+        this.readRetentionMonths = readRetentionMonths;
+        this.maxRetentionMonths = maxRetentionMonths;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        transactionTemplate.executeWithoutResult(status -> {
+            String kind = relkind(TABLE);
+
+            if (kind == null) {
+                createParent();
+            } else if (!"p".equals(kind)) {
+                convertLegacyTable();
+            }
+
+            applyTypeCheck();
+            addUpdatedAt();
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_notifications_user_created "
+                    + "ON " + TABLE + " (user_id, created_at DESC, id DESC)");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_notifications_user_updated "
+                    + "ON " + TABLE + " (user_id, updated_at DESC, id DESC)");
+            ensurePartitions(YearMonth.now(), YearMonth.now().plusMonths(monthsAhead));
+            createActorTable();
+        });
+    }
+
+    @Scheduled(cron = "${app.notifications.partitions.maintenance-cron:0 30 3 * * *}")
+    public void maintain() {
+        transactionTemplate.executeWithoutResult(
+                status -> ensurePartitions(YearMonth.now(), YearMonth.now().plusMonths(monthsAhead)));
+
+        YearMonth now = YearMonth.now();
+        for (String partition : listPartitions()) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            if (!matcher.matches()) {
+                continue;
+            }
+            YearMonth end = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)))
+                    .plusMonths(1);
+
+            boolean expired = !end.isAfter(now.minusMonths(maxRetentionMonths));
+            boolean settled = !end.isAfter(now.minusMonths(readRetentionMonths)) && !hasUnread(partition);
+            if (expired || settled) {
+                YearMonth month = end.minusMonths(1);
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition);
+                    jdbcTemplate.execute("DROP TABLE IF EXISTS " + partitionName(ACTOR_TABLE, month));
+                });
+                log.info("Dropped notification partition {}", partition);
+            }
+        }
+    }
+
+    private void createParent() {
+        jdbcTemplate.execute("CREATE TABLE " + TABLE + " ("
+                + "id UUID NOT NULL, "
+                + "user_id UUID NOT NULL REFERENCES users (id), "
+                + "type VARCHAR(255) NOT NULL, "
+                + "message TEXT NOT NULL, "
+                + "reference_id UUID, "
+                + "is_read BOOLEAN NOT NULL, "
+                + "actor_count INTEGER NOT NULL DEFAULT 1, "
+                + "recent_actor_ids TEXT, "
+                + "created_at TIMESTAMP(6) NOT NULL, "
+                + "updated_at TIMESTAMP(6) NOT NULL, "
+                + "PRIMARY KEY (id, created_at)"
+                + ") PARTITION BY RANGE (created_at)");
+    }
+
+    private void convertLegacyTable() {
+        log.info("Converting {} to a partitioned table", TABLE);
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " RENAME TO " + LEGACY_TABLE);
+        // Index names are schema wide, so free them up for the new table
+        jdbcTemplate.execute("ALTER TABLE " + LEGACY_TABLE + " DROP CONSTRAINT IF EXISTS " + TABLE + "_pkey");
+        jdbcTemplate.execute("DROP INDEX IF EXISTS idx_notifications_user_created");
+        createParent();
+
+        Map<String, Object> range = jdbcTemplate.queryForMap(
+                "SELECT MIN(created_at) AS oldest, MAX(created_at) AS newest FROM " + LEGACY_TABLE);
+        if (range.get("oldest") != null) {
+            YearMonth oldest = YearMonth.from(((Timestamp) range.get("oldest")).toLocalDateTime());
+            YearMonth newest = YearMonth.from(((Timestamp) range.get("newest")).toLocalDateTime());
+            ensurePartitions(oldest, newest.isAfter(YearMonth.now()) ? newest : YearMonth.now());
+        }
+
+        List<String> legacyColumns = columnsOf(LEGACY_TABLE);
+        List<String> copiedColumns = COLUMNS.stream()
+                .filter(column -> legacyColumns.contains(column) || "updated_at".equals(column))
+                .collect(Collectors.toList());
+        String columns = String.join(", ", copiedColumns);
+        // Tables from before grouping had no updated_at; their rows were last active when created
+        String values = copiedColumns.stream()
+                .map(column -> legacyColumns.contains(column) ? column : "created_at")
+                .collect(Collectors.joining(", "));
+        int copied = jdbcTemplate.update(
+                "INSERT INTO " + TABLE + " (" + columns + ") SELECT " + values + " FROM " + LEGACY_TABLE);
+        jdbcTemplate.execute("DROP TABLE " + LEGACY_TABLE);
+        log.info("Moved {} notifications into the partitioned table", copied);
+    }
+
+    // Groups are ordered by their last activity; rows from before that start out at their creation time
+    private void addUpdatedAt() {
+        if (columnsOf(TABLE).contains("updated_at")) {
+            return;
+        }
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " ADD COLUMN updated_at TIMESTAMP(6)");
+        jdbcTemplate.update("UPDATE " + TABLE + " SET updated_at = created_at");
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " ALTER COLUMN updated_at SET NOT NULL");
+    }
+
+    private List<String> columnsOf(String table) {
+        return jdbcTemplate.queryForList(
+                "SELECT column_name FROM information_schema.columns "
+                        + "WHERE table_name = ? AND table_schema = current_schema()",
+                String.class, table);
+    }
+
+    /**
+     * Every distinct actor of a LIKE/COMMENT group, so a repeat actor is not
+     * counted twice. Rows carry the group's created_at and live in the
+     * matching monthly partition, so retention drops them with the group's.
+     * An unpartitioned table from before is converted in place; a new table
+     * is seeded from the recent actors of existing groups.
+     */
+    private void createActorTable() {
+        String kind = relkind(ACTOR_TABLE);
+        if ("p".equals(kind)) {
+            return;
+        }
+        if (kind != null) {
+            log.info("Converting {} to a partitioned table", ACTOR_TABLE);
+            jdbcTemplate.execute("ALTER TABLE " + ACTOR_TABLE + " RENAME TO " + LEGACY_ACTOR_TABLE);
+            jdbcTemplate.execute("ALTER TABLE " + LEGACY_ACTOR_TABLE + " DROP CONSTRAINT IF EXISTS "
+                    + ACTOR_TABLE + "_pkey");
+            jdbcTemplate.execute("DROP INDEX IF EXISTS idx_notification_actors_created");
+        }
+
+        jdbcTemplate.execute("CREATE TABLE " + ACTOR_TABLE + " ("
+                + "notification_id UUID NOT NULL, "
+                + "actor_id UUID NOT NULL, "
+                + "created_at TIMESTAMP(6) NOT NULL, "
+                + "PRIMARY KEY (notification_id, actor_id, created_at)"
+                + ") PARTITION BY RANGE (created_at)");
+        for (String partition : listPartitions()) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            if (matcher.matches()) {
+                createPartition(ACTOR_TABLE,
+                        YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))));
+            }
+        }
+
+        if (kind != null) {
+            // Rows left behind by partitions dropped before the conversion have no group and no partition
+            jdbcTemplate.update("INSERT INTO " + ACTOR_TABLE + " (notification_id, actor_id, created_at) "
+                    + "SELECT a.notification_id, a.actor_id, n.created_at FROM " + LEGACY_ACTOR_TABLE + " a "
+                    + "JOIN " + TABLE + " n ON n.id = a.notification_id "
+                    + "ON CONFLICT DO NOTHING");
+            jdbcTemplate.execute("DROP TABLE " + LEGACY_ACTOR_TABLE);
+            return;
+        }
+        jdbcTemplate.update("INSERT INTO " + ACTOR_TABLE + " (notification_id, actor_id, created_at) "
+                + "SELECT n.id, CAST(a.actor_id AS UUID), n.created_at FROM " + TABLE + " n "
+                + "CROSS JOIN LATERAL unnest(string_to_array(n.recent_actor_ids, ',')) AS a(actor_id) "
+                + "WHERE n.recent_actor_ids IS NOT NULL AND n.recent_actor_ids <> '' "
+                + "ON CONFLICT DO NOTHING");
+    }
+
+    // Rebuilt from the enum on every start so new notification types need no manual ALTER
+    private void applyTypeCheck() {
+        String types = Arrays.stream(Notification.NotificationType.values())
+                .map(type -> "'" + type.name() + "'")
+                .collect(Collectors.joining(","));
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP CONSTRAINT IF EXISTS notifications_type_check");
+        jdbcTemplate.execute("ALTER TABLE " + TABLE
+                + " ADD CONSTRAINT notifications_type_check CHECK (type IN (" + types + "))");
+    }
+
+    private void ensurePartitions(YearMonth from, YearMonth to) {
+        boolean actors = "p".equals(relkind(ACTOR_TABLE));
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            createPartition(TABLE, month);
+            if (actors) {
+                createPartition(ACTOR_TABLE, month);
+            }
+        }
+    }
+
+    private void createPartition(String table, YearMonth month) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(table, month)
+                + " PARTITION OF " + table
+                + " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+    }
+
+    private String relkind(String table) {
+        return jdbcTemplate.query(
+                "SELECT c.relkind FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace "
+                        + "WHERE c.relname = ? AND n.nspname = current_schema()",
+                rs -> rs.next() ? rs.getString(1) : null, table);
+    }
+
+    private List<String> listPartitions() {
+        return jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i "
+                        + "JOIN pg_class c ON c.oid = i.inhrelid "
+                        + "JOIN pg_class p ON p.oid = i.inhparent "
+                        + "WHERE p.relname = ? ORDER BY c.relname",
+                String.class, TABLE);
+    }
+
+    // Unread means neither flagged read nor covered by the recipient's read-through watermark
+    private boolean hasUnread(String partition) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + partition + " n JOIN users u ON u.id = n.user_id "
+                        + "WHERE n.is_read = false "
+                        + "AND (u.notifications_read_through IS NULL OR n.created_at > u.notifications_read_through))",
+                Boolean.class));
+    }
+
+    private String partitionName(String table, YearMonth month) {
+        return table + "_" + PARTITION_SUFFIX.format(month);
+    }
+}
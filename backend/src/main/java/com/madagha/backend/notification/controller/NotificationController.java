@@ -1,16 +1,25 @@
 package com.madagha.backend.notification.controller;
 
+import com.madagha.backend.auth.service.JwtService;
+import com.madagha.backend.common.pagination.CursorPage;
 import com.madagha.backend.notification.dto.NotificationResponse;
 import com.madagha.backend.notification.service.NotificationService;
+import com.madagha.backend.notification.service.NotificationStreamRegistry;
+import com.madagha.backend.notification.service.UnreadCountCache;
 import com.madagha.backend.user.entity.User;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -22,6 +31,8 @@ import java.util.UUID;
 public class NotificationController {
 
     private final NotificationService notificationService;
+    private final NotificationStreamRegistry streamRegistry;
+    private final JwtService jwtService;
 
     @GetMapping
     public ResponseEntity<Page<NotificationResponse>> getNotifications(
@@ -31,11 +42,44 @@ public class NotificationController {
         return ResponseEntity.ok(notifications);
     }
 
+    @GetMapping(params = "cursor")
+    public ResponseEntity<CursorPage<NotificationResponse>> getNotificationsSlice(
+            @AuthenticationPrincipal User user,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        CursorPage<NotificationResponse> notifications = notificationService.getUserNotifications(user, cursor, size);
+        return ResponseEntity.ok(notifications);
+    }
+
     @GetMapping("/unread-count")
-    public ResponseEntity<?> getUnreadCount(@AuthenticationPrincipal User user) {
+    public ResponseEntity<?> getUnreadCount(@AuthenticationPrincipal User user, WebRequest request) {
+        UnreadCountCache.UnreadCount unread = notificationService.getUnreadCount(user);
+        String etag = "\"" + unread.getVersion() + "\"";
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
         Map<String, Long> result = new HashMap<>();
-        result.put("unreadCount", notificationService.getUnreadCount(user));
-        return ResponseEntity.ok(result);
+        result.put("unreadCount", unread.getCount());
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(result);
+    }
+
+    @PostMapping("/stream-ticket")
+    public ResponseEntity<Map<String, String>> createStreamTicket(@AuthenticationPrincipal User user) {
+        return ResponseEntity.ok(Map.of("ticket", jwtService.generateStreamTicket(user)));
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream(@AuthenticationPrincipal User user) {
+        SseEmitter emitter = streamRegistry.open(user.getId());
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        notificationService.publishUnreadCount(user.getId());
+        return ResponseEntity.ok(emitter);
     }
 
     @PutMapping("/{notificationId}/read")
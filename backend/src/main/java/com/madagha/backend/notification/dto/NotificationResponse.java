@@ -7,6 +7,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 @Data
@@ -20,4 +21,7 @@ public class NotificationResponse {
     private UUID referenceId;
     private Boolean isRead;
     private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private Integer actorCount;
+    private List<UUID> actorIds;
 }
@@ -6,12 +6,14 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
 
+// Partitioned by month; the schema is managed by NotificationPartitionManager, not ddl-auto
 @Entity
 @Table(name = "notifications")
 @Data
@@ -43,10 +45,32 @@ public class Notification {
     @Builder.Default
     private Boolean isRead = false;
 
+    // LIKE and COMMENT notifications are grouped per post; these describe the group
+    @Column(name = "actor_count", nullable = false)
+    @ColumnDefault("1")
+    @Builder.Default
+    private Integer actorCount = 1;
+
+    // Most recent actors first, comma separated
+    @Column(name = "recent_actor_ids", columnDefinition = "TEXT")
+    private String recentActorIds;
+
+    // Fixed once inserted: it is the partition key and what read-through watermarks compare against
     @CreatedDate
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
+    // Last activity folded into the group; lists are ordered and paged on it. Maintained by native updates
+    @Column(name = "updated_at", nullable = false, updatable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    void initUpdatedAt() {
+        if (updatedAt == null) {
+            updatedAt = createdAt != null ? createdAt : LocalDateTime.now();
+        }
+    }
+
     public enum NotificationType {
         LIKE,
         COMMENT,
@@ -5,21 +5,54 @@ import com.madagha.backend.user.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface NotificationRepository extends JpaRepository<Notification, UUID> {
 
-    Page<Notification> findByUserOrderByCreatedAtDesc(User user, Pageable pageable);
+    Page<Notification> findByUserOrderByUpdatedAtDescIdDesc(User user, Pageable pageable);
 
-    long countByUserAndIsReadFalse(User user);
+    @Query("SELECT n FROM Notification n WHERE n.user = :user AND (n.updatedAt < :updatedAt OR (n.updatedAt = :updatedAt AND n.id < :id)) ORDER BY n.updatedAt DESC, n.id DESC")
+    List<Notification> findByUserBefore(
+            @Param("user") User user,
+            @Param("updatedAt") LocalDateTime updatedAt,
+            @Param("id") UUID id,
+            Pageable pageable);
+
+    @Query("SELECT COUNT(n) FROM Notification n JOIN n.user u WHERE u.id = :userId AND n.isRead = false AND (u.notificationsReadThrough IS NULL OR n.createdAt > u.notificationsReadThrough)")
+    long countUnread(@Param("userId") UUID userId);
 
     void deleteByUserId(UUID userId);
 
-    Optional<Notification> findFirstByUserAndTypeAndReferenceIdOrderByCreatedAtDesc(
+    // Unread, active inside the aggregation window and not covered by the read-through watermark
+    @Query("SELECT n FROM Notification n WHERE n.user = :user AND n.type = :type AND n.referenceId = :referenceId AND n.isRead = false AND n.updatedAt > :activeSince AND n.createdAt > :createdAfter ORDER BY n.updatedAt DESC")
+    List<Notification> findOpenGroups(
+            @Param("user") User user,
+            @Param("type") Notification.NotificationType type,
+            @Param("referenceId") UUID referenceId,
+            @Param("activeSince") LocalDateTime activeSince,
+            @Param("createdAfter") LocalDateTime createdAfter,
+            Pageable pageable);
+
+    // created_at stays put: it is the partition key
+    @Modifying
+    @Query(value = "UPDATE notifications SET actor_count = :actorCount, recent_actor_ids = :recentActorIds, message = :message, updated_at = :updatedAt WHERE id = :id", nativeQuery = true)
+    void updateGroup(
+            @Param("id") UUID id,
+            @Param("actorCount") int actorCount,
+            @Param("recentActorIds") String recentActorIds,
+            @Param("message") String message,
+            @Param("updatedAt") LocalDateTime updatedAt);
+
+    Optional<Notification> findFirstByUserAndTypeAndReferenceIdOrderByUpdatedAtDesc(
             User user,
             Notification.NotificationType type,
             UUID referenceId);
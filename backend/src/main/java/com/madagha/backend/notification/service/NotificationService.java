@@ -1,22 +1,48 @@
 package com.madagha.backend.notification.service;
 
+import com.madagha.backend.common.pagination.Cursor;
+import com.madagha.backend.common.pagination.CursorPage;
+import com.madagha.backend.common.transaction.AfterCommit;
+import com.madagha.backend.notification.config.NotificationPartitionManager;
 import com.madagha.backend.notification.dto.NotificationResponse;
 import com.madagha.backend.notification.entity.Notification;
 import com.madagha.backend.notification.repository.NotificationRepository;
 import com.madagha.backend.user.entity.User;
+import com.madagha.backend.user.repository.UserRepository;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class NotificationService {
 
+    private static final int RECENT_ACTORS = 5;
+    // Stands in for a missing read-through watermark in queries
+    private static final LocalDateTime NEVER_READ = LocalDateTime.of(1970, 1, 1, 0, 0);
+
     private final NotificationRepository notificationRepository;
+    private final NotificationStreamRegistry streamRegistry;
+    private final UnreadCountCache unreadCountCache;
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.notifications.aggregation-window-ms:86400000}")
+    private long aggregationWindowMs;
 
     @Transactional
     public void createNotification(User user, Notification.NotificationType type, String message, UUID referenceId) {
@@ -28,16 +54,178 @@ public class NotificationService {
                 .isRead(false)
                 .build();
 
-        notificationRepository.save(notification);
+        Notification saved = notificationRepository.save(notification);
+        NotificationResponse response = mapToResponse(saved);
+        AfterCommit.run(() -> onCreated(user.getId(), response));
+    }
+
+    /**
+     * Records that {@code actor} acted on {@code referenceId} (liked or
+     * commented on a post). Activity folds into the recipient's latest unread
+     * group for that reference inside the aggregation window, so a popular
+     * post produces one row like "alice and 41 others liked your post".
+     */
+    @Transactional
+    public void recordActivity(User recipient, Notification.NotificationType type, UUID referenceId, User actor,
+            String subject) {
+        recordActivity(recipient.getId(), recipient.getNotificationsReadThrough(), type, referenceId, actor, subject);
+    }
+
+    /**
+     * Same as {@link #recordActivity(User, Notification.NotificationType, UUID, User, String)}
+     * for callers that already have the recipient's ID and read-through
+     * watermark, without loading the recipient.
+     */
+    @Transactional
+    public void recordActivity(UUID recipientId, LocalDateTime readThrough, Notification.NotificationType type,
+            UUID referenceId, User actor, String subject) {
+        lockGroup(recipientId, type, referenceId);
+        User recipient = userRepository.getReferenceById(recipientId);
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime activeSince = now.minusNanos(aggregationWindowMs * 1_000_000);
+
+        Optional<Notification> open = notificationRepository.findOpenGroups(recipient, type, referenceId,
+                        activeSince, readThrough != null ? readThrough : NEVER_READ, PageRequest.of(0, 1))
+                .stream()
+                .findFirst();
+        if (open.isEmpty()) {
+            Notification notification = Notification.builder()
+                    .user(recipient)
+                    .type(type)
+                    .message(describe(type, actor.getUsername(), 1, subject))
+                    .referenceId(referenceId)
+                    .isRead(false)
+                    .actorCount(1)
+                    .recentActorIds(actor.getId().toString())
+                    .build();
+
+            Notification saved = notificationRepository.save(notification);
+            addActor(saved, actor.getId());
+            NotificationResponse response = mapToResponse(saved, readThrough);
+            AfterCommit.run(() -> onCreated(recipientId, response));
+            return;
+        }
+
+        Notification group = open.get();
+        List<UUID> actors = parseActors(group.getRecentActorIds());
+        actors.remove(actor.getId());
+        actors.add(0, actor.getId());
+        String recentActorIds = joinActors(actors);
+        // Someone acting again (a second comment) moves to the front but is still one actor
+        int actorCount = group.getActorCount() + (addActor(group, actor.getId()) ? 1 : 0);
+        String message = describe(type, actor.getUsername(), actorCount, subject);
+        notificationRepository.updateGroup(group.getId(), actorCount, recentActorIds, message, now);
+
+        // The group was already unread, so only the stream needs to hear about it
+        NotificationResponse response = NotificationResponse.builder()
+                .id(group.getId())
+                .type(type)
+                .message(message)
+                .referenceId(referenceId)
+                .isRead(false)
+                .createdAt(group.getCreatedAt())
+                .updatedAt(now)
+                .actorCount(actorCount)
+                .actorIds(parseActors(recentActorIds))
+                .build();
+        AfterCommit.run(() -> publish(recipientId, response));
+    }
+
+    /**
+     * Takes {@code actor} back out of the recipient's latest group for
+     * {@code referenceId}, deleting the row once nobody is left in it.
+     */
+    @Transactional
+    public void retractActivity(User recipient, Notification.NotificationType type, UUID referenceId, User actor,
+            String subject) {
+        retractActivity(recipient.getId(), recipient.getNotificationsReadThrough(), type, referenceId, actor,
+                subject);
+    }
+
+    @Transactional
+    public void retractActivity(UUID recipientId, LocalDateTime readThrough, Notification.NotificationType type,
+            UUID referenceId, User actor, String subject) {
+        lockGroup(recipientId, type, referenceId);
+        User recipient = userRepository.getReferenceById(recipientId);
+
+        Optional<Notification> latest = notificationRepository
+                .findFirstByUserAndTypeAndReferenceIdOrderByUpdatedAtDesc(recipient, type, referenceId);
+        if (latest.isEmpty()) {
+            return;
+        }
+
+        Notification group = latest.get();
+        if (!removeActor(group, actor.getId())) {
+            // Not part of this group (it was counted in an older one)
+            return;
+        }
+        boolean unread = !isRead(group, readThrough);
+        if (group.getActorCount() <= 1) {
+            deleteActors(group);
+            notificationRepository.delete(group);
+            if (unread) {
+                AfterCommit.run(() -> {
+                    unreadCountCache.decrement(recipientId);
+                    publishUnreadCount(recipientId);
+                });
+            }
+            return;
+        }
+
+        List<UUID> actors = parseActors(group.getRecentActorIds());
+        actors.remove(actor.getId());
+        int actorCount = group.getActorCount() - 1;
+        String headName = actors.isEmpty()
+                ? null
+                : userRepository.findById(actors.get(0)).map(User::getUsername).orElse(null);
+        notificationRepository.updateGroup(group.getId(), actorCount, joinActors(actors),
+                describe(type, headName, actorCount, subject), group.getUpdatedAt());
+    }
+
+    /**
+     * Counts a committed notification against the recipient's unread total
+     * and pushes it to their open streams, if any.
+     */
+    public void onCreated(UUID userId, NotificationResponse response) {
+        unreadCountCache.increment(userId);
+        if (!streamRegistry.isConnected(userId)) {
+            return;
+        }
+        streamRegistry.publish(userId, "notification", response);
+        publishUnreadCount(userId);
+    }
+
+    private void publish(UUID userId, NotificationResponse response) {
+        if (streamRegistry.isConnected(userId)) {
+            streamRegistry.publish(userId, "notification", response);
+        }
+    }
+
+    public void publishUnreadCount(UUID userId) {
+        if (!streamRegistry.isConnected(userId)) {
+            return;
+        }
+        streamRegistry.publish(userId, "unread-count",
+                Map.of("unreadCount", unreadCountCache.get(userId).getCount()));
     }
 
     public Page<NotificationResponse> getUserNotifications(User user, Pageable pageable) {
-        return notificationRepository.findByUserOrderByCreatedAtDesc(user, pageable)
-                .map(this::mapToResponse);
+        return notificationRepository.findByUserOrderByUpdatedAtDescIdDesc(user, pageable)
+                .map(notification -> mapToResponse(notification, user));
     }
 
-    public long getUnreadCount(User user) {
-        return notificationRepository.countByUserAndIsReadFalse(user);
+    public CursorPage<NotificationResponse> getUserNotifications(User user, String cursor, int size) {
+        Cursor position = Cursor.decode(cursor);
+        List<Notification> notifications = notificationRepository.findByUserBefore(
+                user, position.getCreatedAt(), position.getId(), Cursor.probe(size));
+        return CursorPage.map(notifications, size,
+                notification -> new Cursor(notification.getUpdatedAt(), notification.getId()),
+                notification -> mapToResponse(notification, user));
+    }
+
+    public UnreadCountCache.UnreadCount getUnreadCount(User user) {
+        return unreadCountCache.get(user.getId());
     }
 
     @Transactional
@@ -49,34 +237,142 @@ public class NotificationService {
             throw new RuntimeException("Unauthorized");
         }
 
+        if (isRead(notification, user)) {
+            return;
+        }
+
         notification.setIsRead(true);
         notificationRepository.save(notification);
+        AfterCommit.run(() -> {
+            unreadCountCache.decrement(user.getId());
+            publishUnreadCount(user.getId());
+        });
     }
 
+    /**
+     * Marks everything up to now as read by moving the user's read-through
+     * watermark; no notification rows are rewritten.
+     */
     @Transactional
     public void markAllAsRead(User user) {
-        Page<Notification> notifications = notificationRepository
-                .findByUserOrderByCreatedAtDesc(user, Pageable.unpaged());
-
-        notifications.forEach(notification -> notification.setIsRead(true));
-        notificationRepository.saveAll(notifications);
+        userRepository.advanceNotificationsReadThrough(user.getId(), LocalDateTime.now());
+        AfterCommit.run(() -> {
+            unreadCountCache.reset(user.getId());
+            publishUnreadCount(user.getId());
+        });
     }
 
     @Transactional
     public void deleteLatestNotification(User user, Notification.NotificationType type, UUID referenceId) {
         notificationRepository
-                .findFirstByUserAndTypeAndReferenceIdOrderByCreatedAtDesc(user, type, referenceId)
-                .ifPresent(notificationRepository::delete);
+                .findFirstByUserAndTypeAndReferenceIdOrderByUpdatedAtDesc(user, type, referenceId)
+                .ifPresent(notification -> {
+                    deleteActors(notification);
+                    notificationRepository.delete(notification);
+                    if (isRead(notification, user)) {
+                        return;
+                    }
+                    AfterCommit.run(() -> {
+                        unreadCountCache.decrement(user.getId());
+                        publishUnreadCount(user.getId());
+                    });
+                });
+    }
+
+    /** Deletes every notification of a user being removed, with their actor rows. */
+    @Transactional
+    public void deleteAllForUser(UUID userId) {
+        jdbcTemplate.update("DELETE FROM " + NotificationPartitionManager.ACTOR_TABLE + " a USING "
+                + NotificationPartitionManager.TABLE + " n WHERE n.id = a.notification_id "
+                + "AND n.created_at = a.created_at AND n.user_id = ?", userId);
+        notificationRepository.deleteByUserId(userId);
+        AfterCommit.run(() -> unreadCountCache.evict(userId));
+    }
+
+    // True when the actor was not yet part of the group
+    private boolean addActor(Notification group, UUID actorId) {
+        return jdbcTemplate.update("INSERT INTO " + NotificationPartitionManager.ACTOR_TABLE
+                        + " (notification_id, actor_id, created_at) VALUES (?, ?, ?) ON CONFLICT DO NOTHING",
+                group.getId(), actorId, Timestamp.valueOf(group.getCreatedAt())) == 1;
+    }
+
+    private boolean removeActor(Notification group, UUID actorId) {
+        return jdbcTemplate.update("DELETE FROM " + NotificationPartitionManager.ACTOR_TABLE
+                        + " WHERE notification_id = ? AND actor_id = ? AND created_at = ?",
+                group.getId(), actorId, Timestamp.valueOf(group.getCreatedAt())) == 1;
+    }
+
+    private void deleteActors(Notification group) {
+        jdbcTemplate.update("DELETE FROM " + NotificationPartitionManager.ACTOR_TABLE
+                + " WHERE notification_id = ? AND created_at = ?", group.getId(),
+                Timestamp.valueOf(group.getCreatedAt()));
+    }
+
+    // Serializes writers of one group so concurrent likes cannot open two rows
+    private void lockGroup(UUID recipientId, Notification.NotificationType type, UUID referenceId) {
+        long key = recipientId.getMostSignificantBits() * 31 + referenceId.getLeastSignificantBits()
+                + type.ordinal();
+        jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?)", key);
+    }
+
+    private String describe(Notification.NotificationType type, String actorName, int actorCount, String subject) {
+        String action = type == Notification.NotificationType.LIKE ? "liked" : "commented on";
+        String actors;
+        if (actorName == null) {
+            actors = actorCount + (actorCount == 1 ? " person" : " people");
+        } else if (actorCount == 1) {
+            actors = actorName;
+        } else {
+            actors = actorName + " and " + (actorCount - 1) + (actorCount == 2 ? " other" : " others");
+        }
+        return actors + " " + action + " your post: " + subject;
+    }
+
+    private List<UUID> parseActors(String recentActorIds) {
+        List<UUID> actors = new ArrayList<>();
+        if (recentActorIds != null && !recentActorIds.isBlank()) {
+            for (String id : recentActorIds.split(",")) {
+                actors.add(UUID.fromString(id));
+            }
+        }
+        return actors;
+    }
+
+    private String joinActors(List<UUID> actors) {
+        return actors.stream()
+                .limit(RECENT_ACTORS)
+                .map(UUID::toString)
+                .collect(Collectors.joining(","));
+    }
+
+    private boolean isRead(Notification notification, User user) {
+        return isRead(notification, user.getNotificationsReadThrough());
+    }
+
+    private boolean isRead(Notification notification, LocalDateTime readThrough) {
+        return notification.getIsRead()
+                || (readThrough != null && !notification.getCreatedAt().isAfter(readThrough));
     }
 
     private NotificationResponse mapToResponse(Notification notification) {
+        return mapToResponse(notification, notification.getUser());
+    }
+
+    private NotificationResponse mapToResponse(Notification notification, User user) {
+        return mapToResponse(notification, user.getNotificationsReadThrough());
+    }
+
+    private NotificationResponse mapToResponse(Notification notification, LocalDateTime readThrough) {
         return NotificationResponse.builder()
                 .id(notification.getId())
                 .type(notification.getType())
                 .message(notification.getMessage())
                 .referenceId(notification.getReferenceId())
-                .isRead(notification.getIsRead())
+                .isRead(isRead(notification, readThrough))
                 .createdAt(notification.getCreatedAt())
+                .updatedAt(notification.getUpdatedAt())
+                .actorCount(notification.getActorCount())
+                .actorIds(parseActors(notification.getRecentActorIds()))
                 .build();
     }
 }
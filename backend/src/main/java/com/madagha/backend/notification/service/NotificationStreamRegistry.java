@@ -0,0 +1,181 @@
+package com.madagha.backend.notification.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory registry of open Server-Sent Events connections, keyed by user.
+ * Each connection has a bounded send buffer drained by a small dispatcher
+ * pool; a connection that falls a full buffer behind is closed so the client
+ * reconnects and resyncs instead of growing the heap.
+ */
+@Component
+public class NotificationStreamRegistry {
+
+    private final Map<UUID, ConcurrentLinkedDeque<Connection>> connections = new ConcurrentHashMap<>();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final ExecutorService dispatcher;
+
+    private final int maxConnections;
+    private final int maxConnectionsPerUser;
+    private final int bufferSize;
+    private final long timeoutMs;
+
+    public NotificationStreamRegistry(
+            @Value("${app.notifications.stream.max-connections:2000}") int maxConnections,
+            @Value("${app.notifications.stream.max-connections-per-user:5}") int maxConnectionsPerUser,
+            @Value("${app.notifications.stream.buffer-size:32}") int bufferSize,
+            @Value("${app.notifications.stream.timeout-ms:1800000}") long timeoutMs,
+            @Value("${app.notifications.stream.dispatcher-threads:4}") int dispatcherThreads) {
+        this.maxConnections = maxConnections;
+        this.maxConnectionsPerUser = maxConnectionsPerUser;
+        this.bufferSize = bufferSize;
+        this.timeoutMs = timeoutMs;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(dispatcherThreads, runnable -> {
+            Thread thread = new Thread(runnable, "notification-stream-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens a stream for the user, or returns {@code null} when the server is
+     * at its connection cap. The user's oldest stream is closed once they hit
+     * the per-user cap.
+     */
+    public SseEmitter open(UUID userId) {
+        if (openConnections.incrementAndGet() > maxConnections) {
+            openConnections.decrementAndGet();
+            return null;
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Connection connection = new Connection(userId, emitter, new ArrayBlockingQueue<>(bufferSize));
+        ConcurrentLinkedDeque<Connection> userConnections = connections.compute(userId, (id, existing) -> {
+            ConcurrentLinkedDeque<Connection> deque = existing == null ? new ConcurrentLinkedDeque<>() : existing;
+            deque.addLast(connection);
+            return deque;
+        });
+
+        emitter.onCompletion(() -> remove(connection));
+        emitter.onTimeout(() -> remove(connection));
+        emitter.onError(error -> remove(connection));
+
+        while (userConnections.size() > maxConnectionsPerUser) {
+            Connection oldest = userConnections.peekFirst();
+            if (oldest == null || oldest == connection) {
+                break;
+            }
+            close(oldest);
+        }
+        return emitter;
+    }
+
+    public boolean isConnected(UUID userId) {
+        ConcurrentLinkedDeque<Connection> userConnections = connections.get(userId);
+        return userConnections != null && !userConnections.isEmpty();
+    }
+
+    public void publish(UUID userId, String eventName, Object payload) {
+        ConcurrentLinkedDeque<Connection> userConnections = connections.get(userId);
+        if (userConnections == null) {
+            return;
+        }
+        for (Connection connection : userConnections) {
+            enqueue(connection, SseEmitter.event().name(eventName).data(payload, MediaType.APPLICATION_JSON));
+        }
+    }
+
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    @Scheduled(fixedRateString = "${app.notifications.stream.heartbeat-ms:25000}")
+    public void heartbeat() {
+        connections.values().forEach(userConnections -> userConnections
+                .forEach(connection -> enqueue(connection, SseEmitter.event().comment("heartbeat"))));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        connections.values().forEach(userConnections -> userConnections.forEach(this::close));
+        dispatcher.shutdownNow();
+    }
+
+    private void enqueue(Connection connection, SseEmitter.SseEventBuilder event) {
+        if (!connection.buffer.offer(event)) {
+            // Slow consumer: drop the stream rather than buffer without bound
+            close(connection);
+            return;
+        }
+        if (connection.draining.compareAndSet(false, true)) {
+            dispatcher.execute(() -> drain(connection));
+        }
+    }
+
+    private void drain(Connection connection) {
+        try {
+            SseEmitter.SseEventBuilder event;
+            while ((event = connection.buffer.poll()) != null) {
+                connection.emitter.send(event);
+            }
+        } catch (IOException | IllegalStateException ex) {
+            close(connection);
+            return;
+        } finally {
+            connection.draining.set(false);
+        }
+        // An event may have been enqueued after the last poll but before the flag was cleared
+        if (!connection.buffer.isEmpty() && connection.draining.compareAndSet(false, true)) {
+            dispatcher.execute(() -> drain(connection));
+        }
+    }
+
+    private void close(Connection connection) {
+        remove(connection);
+        try {
+            connection.emitter.complete();
+        } catch (IllegalStateException ignored) {
+            // Already completed
+        }
+    }
+
+    private void remove(Connection connection) {
+        if (!connection.closed.compareAndSet(false, true)) {
+            return;
+        }
+        openConnections.decrementAndGet();
+        connection.buffer.clear();
+        connections.computeIfPresent(connection.userId, (id, userConnections) -> {
+            userConnections.remove(connection);
+            return userConnections.isEmpty() ? null : userConnections;
+        });
+    }
+
+    @RequiredArgsConstructor
+    private static final class Connection {
+        private final UUID userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+    }
+}
@@ -0,0 +1,174 @@
+package com.madagha.backend.notification.service;
+
+import com.madagha.backend.notification.dto.NotificationResponse;
+import com.madagha.backend.notification.entity.Notification;
+import com.madagha.backend.post.event.PostPublishedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes "new post" notifications for every subscriber of the author once the
+ * post has committed. Subscriber ids are streamed in keyset-ordered chunks and
+ * each chunk is inserted with one JDBC batch in its own transaction, retried
+ * with backoff on failure.
+ */
+@Slf4j
+@Component
+public class PostNotificationFanout {
+
+    private static final String SUBSCRIBERS_SQL = "SELECT subscriber_id FROM subscriptions "
+            + "WHERE subscribed_to_id = ? AND subscriber_id > ? ORDER BY subscriber_id LIMIT ?";
+
+    private static final String INSERT_SQL = "INSERT INTO notifications "
+            + "(id, user_id, type, message, reference_id, is_read, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, false, ?, ?)";
+
+    // Postgres orders uuids as unsigned bytes, so the all-zero id sorts first
+    private static final UUID LOWEST_ID = new UUID(0L, 0L);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final NotificationService notificationService;
+
+    private final Counter delivered;
+    private final Counter retried;
+    private final Counter failed;
+    private final Timer duration;
+    private final AtomicInteger inProgress;
+
+    @Value("${app.notifications.fanout.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.notifications.fanout.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.notifications.fanout.retry-backoff-ms:500}")
+    private long retryBackoffMs;
+
+    public PostNotificationFanout(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            NotificationService notificationService,
+            MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.notificationService = notificationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.delivered = meterRegistry.counter("notifications.fanout.delivered");
+        this.retried = meterRegistry.counter("notifications.fanout.retried");
+        this.failed = meterRegistry.counter("notifications.fanout.failed");
+        this.duration = meterRegistry.timer("notifications.fanout.duration");
+        this.inProgress = meterRegistry.gauge("notifications.fanout.in_progress", new AtomicInteger());
+    }
+
+    @Async("notificationFanoutExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPostPublished(PostPublishedEvent event) {
+        inProgress.incrementAndGet();
+        try {
+            duration.record(() -> fanOut(event));
+        } finally {
+            inProgress.decrementAndGet();
+        }
+    }
+
+    private void fanOut(PostPublishedEvent event) {
+        String message = event.getAuthorUsername() + " posted: " + event.getTitle();
+        UUID after = LOWEST_ID;
+
+        while (true) {
+            List<UUID> chunk = jdbcTemplate.queryForList(
+                    SUBSCRIBERS_SQL, UUID.class, event.getAuthorId(), after, chunkSize);
+            if (chunk.isEmpty()) {
+                return;
+            }
+
+            List<NotificationResponse> inserted = insertWithRetry(chunk, event.getPostId(), message);
+            if (inserted != null) {
+                delivered.increment(chunk.size());
+                push(chunk, inserted);
+            } else {
+                failed.increment(chunk.size());
+            }
+
+            if (chunk.size() < chunkSize) {
+                return;
+            }
+            after = chunk.get(chunk.size() - 1);
+        }
+    }
+
+    // Returns the inserted notifications, or null once every attempt failed
+    private List<NotificationResponse> insertWithRetry(List<UUID> recipients, UUID postId, String message) {
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> insertChunk(recipients, postId, message));
+            } catch (RuntimeException ex) {
+                if (attempt == maxAttempts) {
+                    log.error("Dropping {} post notifications for post {} after {} attempts",
+                            recipients.size(), postId, attempt, ex);
+                    return null;
+                }
+                retried.increment();
+                sleep(retryBackoffMs * attempt);
+            }
+        }
+        return null;
+    }
+
+    // Outside the retry loop: the chunk has committed, so a failed push must not insert it again
+    private void push(List<UUID> recipients, List<NotificationResponse> inserted) {
+        for (int i = 0; i < recipients.size(); i++) {
+            try {
+                notificationService.onCreated(recipients.get(i), inserted.get(i));
+            } catch (RuntimeException ex) {
+                log.warn("Could not push post notification to {}: {}", recipients.get(i), ex.getMessage());
+            }
+        }
+    }
+
+    private List<NotificationResponse> insertChunk(List<UUID> recipients, UUID postId, String message) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = new ArrayList<>(recipients.size());
+        List<NotificationResponse> inserted = new ArrayList<>(recipients.size());
+        for (UUID recipient : recipients) {
+            UUID id = UUID.randomUUID();
+            rows.add(new Object[] {
+                    id, recipient, Notification.NotificationType.POST.name(), message, postId, now, now });
+            inserted.add(NotificationResponse.builder()
+                    .id(id)
+                    .type(Notification.NotificationType.POST)
+                    .message(message)
+                    .referenceId(postId)
+                    .isRead(false)
+                    .createdAt(now)
+                    .updatedAt(now)
+                    .build());
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        return inserted;
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.madagha.backend.notification.service;
+
+import com.madagha.backend.notification.repository.NotificationRepository;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user unread notification counts with a version stamp that changes
+ * whenever the count does, so pollers can revalidate with an ETag.
+ * <p>
+ * Counts are loaded from the database on a miss and then kept current by the
+ * deltas {@link NotificationService} applies after each commit. A load only
+ * lands if no delta touched the user while it was in flight; entries are
+ * reloaded after {@code ttl-ms} so any drift stays bounded.
+ */
+@Component
+public class UnreadCountCache {
+
+    private static final long LOADING = -1;
+
+    private final NotificationRepository notificationRepository;
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+    // Seeded from the clock so versions handed out before a restart are never reused
+    private final AtomicLong versions = new AtomicLong(System.currentTimeMillis() * 1000);
+
+    private final int maxEntries;
+    private final long ttlMs;
+
+    public UnreadCountCache(
+            NotificationRepository notificationRepository,
+            @Value("${app.notifications.unread-cache.max-entries:100000}") int maxEntries,
+            @Value("${app.notifications.unread-cache.ttl-ms:300000}") long ttlMs) {
+        this.notificationRepository = notificationRepository;
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+    }
+
+    public UnreadCount get(UUID userId) {
+        Entry current = entries.get(userId);
+        if (current != null && current.count != LOADING && !isExpired(current)) {
+            return new UnreadCount(current.count, current.version);
+        }
+
+        Entry marker = new Entry(current == null ? versions.incrementAndGet() : current.version, LOADING, 0);
+        boolean claimed = current == null
+                ? entries.putIfAbsent(userId, marker) == null
+                : entries.replace(userId, current, marker);
+
+        long count = notificationRepository.countUnread(userId);
+
+        // Keep the version when nothing changed so pollers keep getting 304s across reloads
+        long version = current != null && current.count == count ? current.version : versions.incrementAndGet();
+        Entry loaded = new Entry(version, count, System.currentTimeMillis());
+        if (claimed && entries.replace(userId, marker, loaded)) {
+            evictIfFull();
+        }
+        return new UnreadCount(loaded.count, loaded.version);
+    }
+
+    public void increment(UUID userId) {
+        adjust(userId, 1);
+    }
+
+    public void decrement(UUID userId) {
+        adjust(userId, -1);
+    }
+
+    public void reset(UUID userId) {
+        entries.computeIfPresent(userId,
+                (id, entry) -> new Entry(versions.incrementAndGet(), entry.count == LOADING ? LOADING : 0,
+                        entry.loadedAt));
+    }
+
+    public void evict(UUID userId) {
+        entries.remove(userId);
+    }
+
+    private void adjust(UUID userId, long delta) {
+        // A delta on an in-flight load only bumps the marker, so the stale load is discarded
+        entries.computeIfPresent(userId, (id, entry) -> new Entry(versions.incrementAndGet(),
+                entry.count == LOADING ? LOADING : Math.max(0, entry.count + delta), entry.loadedAt));
+    }
+
+    private boolean isExpired(Entry entry) {
+        return System.currentTimeMillis() - entry.loadedAt > ttlMs;
+    }
+
+    private void evictIfFull() {
+        Iterator<UUID> keys = entries.keySet().iterator();
+        while (entries.size() > maxEntries && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class UnreadCount {
+        private final long count;
+        private final long version;
+    }
+
+    @RequiredArgsConstructor
+    private static final class Entry {
+        private final long version;
+        private final long count;
+        private final long loadedAt;
+    }
+}
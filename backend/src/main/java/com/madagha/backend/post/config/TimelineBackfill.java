@@ -0,0 +1,36 @@
+package com.madagha.backend.post.config;
+
+import com.madagha.backend.post.repository.TimelineRepository;
+import com.madagha.backend.post.service.TimelineService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Seeds the materialized timelines from existing subscriptions the first time
+ * the application starts with an empty timeline table.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TimelineBackfill implements ApplicationRunner {
+
+    private final TimelineRepository timelineRepository;
+    private final TimelineService timelineService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            if (timelineRepository.count() > 0) {
+                return;
+            }
+            int inserted = timelineService.backfillAll();
+            log.info("Backfilled {} timeline entries", inserted);
+        } catch (Exception ex) {
+            // Feeds fall back to whatever has been fanned out; do not block startup
+            log.warn("Timeline backfill failed: {}", ex.getMessage());
+        }
+    }
+}
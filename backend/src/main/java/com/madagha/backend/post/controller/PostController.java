@@ -1,12 +1,15 @@
 package com.madagha.backend.post.controller;
 
+import com.madagha.backend.common.pagination.CursorPage;
 import com.madagha.backend.common.response.ApiResponse;
 import com.madagha.backend.post.dto.CreatePostRequest;
 import com.madagha.backend.post.dto.PostDto;
 import com.madagha.backend.post.service.PostService;
+import com.madagha.backend.user.entity.User;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -49,13 +52,15 @@ public class PostController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponse<PostDto>> getPostById(@PathVariable UUID id) {
-        PostDto post = postService.getPostById(id);
+    public ResponseEntity<ApiResponse<PostDto>> getPostById(
+            @PathVariable UUID id,
+            @AuthenticationPrincipal User viewer) {
+        PostDto post = postService.getPostById(id, viewer.getId());
         return ResponseEntity.ok(ApiResponse.success(post));
     }
 
     @GetMapping
-    public ResponseEntity<ApiResponse<Page<PostDto>>> getAllPosts(
+    public ResponseEntity<ApiResponse<Slice<PostDto>>> getAllPosts(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @AuthenticationPrincipal UserDetails userDetails) {
@@ -63,11 +68,25 @@ public class PostController {
             // If unauthenticated, return empty page (no posts)
             org.springframework.data.domain.Pageable pageable = org.springframework.data.domain.PageRequest.of(page,
                     size);
-            org.springframework.data.domain.Page<PostDto> empty = org.springframework.data.domain.Page.empty(pageable);
+            Slice<PostDto> empty = new org.springframework.data.domain.SliceImpl<>(java.util.List.of(), pageable,
+                    false);
             return ResponseEntity.ok(ApiResponse.success(empty));
         }
 
-        Page<PostDto> posts = postService.getFeedForUser(userDetails.getUsername(), page, size);
+        Slice<PostDto> posts = postService.getFeedForUser(userDetails.getUsername(), page, size);
+        return ResponseEntity.ok(ApiResponse.success(posts));
+    }
+
+    @GetMapping(params = "cursor")
+    public ResponseEntity<ApiResponse<CursorPage<PostDto>>> getFeedSlice(
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        if (userDetails == null) {
+            return ResponseEntity.ok(ApiResponse.success(CursorPage.empty(size)));
+        }
+
+        CursorPage<PostDto> posts = postService.getFeedForUser(userDetails.getUsername(), cursor, size);
         return ResponseEntity.ok(ApiResponse.success(posts));
     }
 
@@ -75,8 +94,19 @@ public class PostController {
     public ResponseEntity<ApiResponse<Page<PostDto>>> getPostsByUser(
             @PathVariable UUID userId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
-        Page<PostDto> posts = postService.getPostsByUser(userId, page, size);
+            @RequestParam(defaultValue = "10") int size,
+            @AuthenticationPrincipal User viewer) {
+        Page<PostDto> posts = postService.getPostsByUser(userId, page, size, viewer.getId());
+        return ResponseEntity.ok(ApiResponse.success(posts));
+    }
+
+    @GetMapping(value = "/user/{userId}", params = "cursor")
+    public ResponseEntity<ApiResponse<CursorPage<PostDto>>> getPostsByUserSlice(
+            @PathVariable UUID userId,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @AuthenticationPrincipal User viewer) {
+        CursorPage<PostDto> posts = postService.getPostsByUser(userId, cursor, size, viewer.getId());
         return ResponseEntity.ok(ApiResponse.success(posts));
     }
 }
@@ -22,6 +22,7 @@ public class PostDto {
     private List<String> mediaUrls;
     private long likeCount;
     private long commentCount;
+    private boolean likedByMe;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 }
@@ -6,6 +6,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -14,7 +15,10 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "posts")
+@Table(name = "posts", indexes = {
+        @Index(name = "idx_posts_owner_created", columnList = "owner_id, created_at DESC, id DESC"),
+        @Index(name = "idx_posts_pulled", columnList = "fanned_out, owner_id, created_at DESC, id DESC")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -40,6 +44,23 @@ public class Post {
     @Builder.Default
     private boolean hidden = false;
 
+    // Decided once when the post is created: false means followers' feeds pull it instead
+    @Column(name = "fanned_out", nullable = false, updatable = false)
+    @ColumnDefault("true")
+    @Builder.Default
+    private boolean fannedOut = true;
+
+    // Maintained by PostCounterService with set-based UPDATEs, never by entity saves
+    @Column(name = "like_count", nullable = false, updatable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private long likeCount = 0;
+
+    @Column(name = "comment_count", nullable = false, updatable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private long commentCount = 0;
+
     @CreatedDate
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -0,0 +1,50 @@
+package com.madagha.backend.post.entity;
+
+import com.madagha.backend.user.entity.User;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One row of a user's materialized home timeline. Rows are written when a post
+ * is published (fan-out on write) and carry the post's creation time so the
+ * feed is a range scan over (user_id, created_at).
+ */
+@Entity
+@Table(name = "timeline_entries", uniqueConstraints = {
+        @UniqueConstraint(columnNames = { "user_id", "post_id" })
+}, indexes = {
+        @Index(name = "idx_timeline_user_created", columnList = "user_id, created_at DESC, post_id DESC"),
+        @Index(name = "idx_timeline_post", columnList = "post_id"),
+        @Index(name = "idx_timeline_author", columnList = "author_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TimelineEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "post_id", nullable = false)
+    private Post post;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "author_id", nullable = false)
+    private User author;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,19 @@
+package com.madagha.backend.post.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * Published inside the createPost transaction; listeners that fan work out
+ * to subscribers run only after it commits.
+ */
+@Getter
+@AllArgsConstructor
+public class PostPublishedEvent {
+    private final UUID postId;
+    private final UUID authorId;
+    private final String authorUsername;
+    private final String title;
+}
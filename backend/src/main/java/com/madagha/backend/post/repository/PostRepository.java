@@ -1,13 +1,16 @@
 package com.madagha.backend.post.repository;
 
 import com.madagha.backend.post.entity.Post;
+import com.madagha.backend.user.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -24,6 +27,10 @@ public interface PostRepository extends JpaRepository<Post, UUID> {
 
         Page<Post> findByOwnerIdAndHiddenFalseOrderByCreatedAtDesc(UUID ownerId, Pageable pageable);
 
+    // Posts that were not fanned out, from the authors the user follows
+    @Query("SELECT p FROM Post p WHERE p.hidden = false AND p.fannedOut = false AND p.owner.id IN (SELECT s.subscribedTo.id FROM com.madagha.backend.subscription.entity.Subscription s WHERE s.subscriber = :user) ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<Post> findPulledForSubscriber(@Param("user") User user, Pageable pageable);
+
     @org.springframework.data.jpa.repository.Query("SELECT p FROM Post p WHERE p.owner IN (SELECT s.subscribedTo FROM com.madagha.backend.subscription.entity.Subscription s WHERE s.subscriber = :user) ORDER BY p.createdAt DESC")
     Page<Post> findPostsForSubscriber(
             @org.springframework.data.repository.query.Param("user") com.madagha.backend.user.entity.User user,
@@ -34,6 +41,20 @@ public interface PostRepository extends JpaRepository<Post, UUID> {
             @org.springframework.data.repository.query.Param("user") com.madagha.backend.user.entity.User user,
             Pageable pageable);
 
+    @Query("SELECT p FROM Post p WHERE p.hidden = false AND p.owner.id = :ownerId AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) ORDER BY p.createdAt DESC, p.id DESC")
+    List<Post> findVisibleByOwnerBefore(
+            @Param("ownerId") UUID ownerId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") UUID id,
+            Pageable pageable);
+
+    @Query("SELECT p FROM Post p WHERE p.hidden = false AND p.fannedOut = false AND p.owner.id IN (SELECT s.subscribedTo.id FROM com.madagha.backend.subscription.entity.Subscription s WHERE s.subscriber = :user) AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) ORDER BY p.createdAt DESC, p.id DESC")
+    List<Post> findPulledForSubscriberBefore(
+            @Param("user") User user,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") UUID id,
+            Pageable pageable);
+
     List<Post> findByOwnerId(UUID ownerId);
 
     void deleteByOwnerId(UUID ownerId);
@@ -0,0 +1,83 @@
+package com.madagha.backend.post.repository;
+
+import com.madagha.backend.post.entity.Post;
+import com.madagha.backend.post.entity.TimelineEntry;
+import com.madagha.backend.user.entity.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface TimelineRepository extends JpaRepository<TimelineEntry, UUID> {
+
+    // Slices, not pages: counting a timeline costs as much as reading all of it
+    @Query("SELECT p FROM TimelineEntry t JOIN t.post p WHERE t.user = :user AND p.hidden = false ORDER BY t.createdAt DESC, p.id DESC")
+    Slice<Post> findTimelinePosts(@Param("user") User user, Pageable pageable);
+
+    @Query("SELECT p FROM TimelineEntry t JOIN t.post p WHERE t.user = :user AND p.hidden = false AND (t.createdAt < :createdAt OR (t.createdAt = :createdAt AND t.post.id < :id)) ORDER BY t.createdAt DESC, p.id DESC")
+    List<Post> findTimelinePostsBefore(
+            @Param("user") User user,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") UUID id,
+            Pageable pageable);
+
+    @Modifying
+    @Query(value = "INSERT INTO timeline_entries (id, user_id, post_id, author_id, created_at) "
+            + "SELECT gen_random_uuid(), s.subscriber_id, :postId, :authorId, :createdAt "
+            + "FROM subscriptions s WHERE s.subscribed_to_id = :authorId "
+            + "ON CONFLICT (user_id, post_id) DO NOTHING", nativeQuery = true)
+    int fanOutToSubscribers(
+            @Param("postId") UUID postId,
+            @Param("authorId") UUID authorId,
+            @Param("createdAt") LocalDateTime createdAt);
+
+    @Modifying
+    @Query(value = "INSERT INTO timeline_entries (id, user_id, post_id, author_id, created_at) "
+            + "SELECT gen_random_uuid(), :userId, p.id, p.owner_id, p.created_at "
+            + "FROM posts p WHERE p.owner_id = :authorId AND p.fanned_out "
+            + "ORDER BY p.created_at DESC LIMIT :depth "
+            + "ON CONFLICT (user_id, post_id) DO NOTHING", nativeQuery = true)
+    int backfillFromAuthor(
+            @Param("userId") UUID userId,
+            @Param("authorId") UUID authorId,
+            @Param("depth") int depth);
+
+    @Modifying
+    @Query(value = "INSERT INTO timeline_entries (id, user_id, post_id, author_id, created_at) "
+            + "SELECT gen_random_uuid(), ranked.subscriber_id, ranked.post_id, ranked.owner_id, ranked.created_at "
+            + "FROM (SELECT s.subscriber_id, p.id AS post_id, p.owner_id, p.created_at, "
+            + "row_number() OVER (PARTITION BY s.subscriber_id ORDER BY p.created_at DESC, p.id DESC) AS rn "
+            + "FROM subscriptions s JOIN posts p ON p.owner_id = s.subscribed_to_id WHERE p.fanned_out) ranked "
+            + "WHERE ranked.rn <= :depth "
+            + "ON CONFLICT (user_id, post_id) DO NOTHING", nativeQuery = true)
+    int backfillAll(@Param("depth") int depth);
+
+    @Modifying
+    @Query(value = "DELETE FROM timeline_entries t USING ("
+            + "SELECT id FROM (SELECT e.id, row_number() OVER (PARTITION BY e.user_id ORDER BY e.created_at DESC, e.post_id DESC) AS rn "
+            + "FROM timeline_entries e WHERE e.user_id IN ("
+            + "SELECT user_id FROM timeline_entries GROUP BY user_id HAVING COUNT(*) > :depth)) ranked "
+            + "WHERE ranked.rn > :depth) stale "
+            + "WHERE t.id = stale.id", nativeQuery = true)
+    int trimToDepth(@Param("depth") int depth);
+
+    @Modifying
+    @Query("DELETE FROM TimelineEntry t WHERE t.user.id = :userId AND t.author.id = :authorId")
+    int deleteByUserIdAndAuthorId(@Param("userId") UUID userId, @Param("authorId") UUID authorId);
+
+    @Modifying
+    @Query("DELETE FROM TimelineEntry t WHERE t.post.id = :postId")
+    void deleteByPostId(@Param("postId") UUID postId);
+
+    @Modifying
+    @Query("DELETE FROM TimelineEntry t WHERE t.user.id = :userId OR t.author.id = :userId")
+    void deleteByUserIdOrAuthorId(@Param("userId") UUID userId);
+}
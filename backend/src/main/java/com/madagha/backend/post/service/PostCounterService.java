@@ -0,0 +1,206 @@
+package com.madagha.backend.post.service;
+
+import com.madagha.backend.common.transaction.AfterCommit;
+import com.madagha.backend.post.entity.Post;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Write-behind buffer for the denormalized like/comment counters on posts.
+ * Committed deltas accumulate in per-post {@link LongAdder}s and are flushed
+ * to the posts table in one batched UPDATE on a short interval; a periodic
+ * reconciliation recomputes the columns from the likes and comments tables.
+ * <p>
+ * Reconciliation never blocks writers. It reads how far each column is off
+ * from one snapshot and adds the difference, skipping posts whose counters
+ * moved while it ran (their rows and deltas may be on either side of the
+ * snapshot); those are picked up by the next run.
+ */
+@Service
+@RequiredArgsConstructor
+public class PostCounterService {
+
+    private static final String FLUSH_SQL = "UPDATE posts SET like_count = like_count + ?, "
+            + "comment_count = comment_count + ? WHERE id = ?";
+
+    private static final String DRIFT_SQL = "SELECT p.id, COALESCE(l.n, 0) - p.like_count AS likes, "
+            + "COALESCE(c.n, 0) - p.comment_count AS comments FROM posts p "
+            + "LEFT JOIN (SELECT post_id, COUNT(*) AS n FROM likes GROUP BY post_id) l ON l.post_id = p.id "
+            + "LEFT JOIN (SELECT post_id, COUNT(*) AS n FROM comments GROUP BY post_id) c ON c.post_id = p.id "
+            + "WHERE p.like_count <> COALESCE(l.n, 0) OR p.comment_count <> COALESCE(c.n, 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Writers share the read lock; flush takes the write lock only to swap buffers
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private volatile Map<UUID, Delta> pending = new ConcurrentHashMap<>();
+    // Swapped out and not yet written, still counted by readers
+    private volatile Map<UUID, Delta> flushing = Map.of();
+    // Keeps flushes and reconciliation from interleaving; writers never take it
+    private final Lock flushLock = new ReentrantLock();
+
+    // Deltas recorded in a transaction that has not completed yet, per post
+    private final Map<UUID, Integer> inFlight = new ConcurrentHashMap<>();
+    // Posts that got deltas while a reconciliation runs; null otherwise
+    private volatile Set<UUID> touched;
+
+    public void recordLike(UUID postId, long delta) {
+        record(postId, delta, 0);
+    }
+
+    public void recordComment(UUID postId, long delta) {
+        record(postId, 0, delta);
+    }
+
+    public long getLikeCount(Post post) {
+        return post.getLikeCount() + sum(post.getId(), delta -> delta.likes);
+    }
+
+    /**
+     * The like count given the stored {@code like_count} read elsewhere, such
+     * as from the statement that just changed the like.
+     */
+    public long getLikeCount(UUID postId, long stored) {
+        return stored + sum(postId, delta -> delta.likes);
+    }
+
+    public long getCommentCount(Post post) {
+        return post.getCommentCount() + sum(post.getId(), delta -> delta.comments);
+    }
+
+    public void discard(UUID postId) {
+        AfterCommit.run(() -> pending.remove(postId));
+    }
+
+    @Scheduled(fixedDelayString = "${app.counters.flush-interval-ms:1000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushLocked();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Scheduled(cron = "${app.counters.reconcile-cron:0 0 * * * *}")
+    public void reconcile() {
+        flushLock.lock();
+        try {
+            // Set before the swap, so every delta added after it is either flushed first or marked here
+            touched = ConcurrentHashMap.newKeySet();
+            flushLocked();
+
+            List<Object[]> corrections = new ArrayList<>();
+            jdbcTemplate.query(DRIFT_SQL, rs -> {
+                corrections.add(new Object[] { rs.getLong("likes"), rs.getLong("comments"),
+                        rs.getObject("id", UUID.class) });
+            });
+            corrections.removeIf(row -> touched.contains((UUID) row[2]) || inFlight.containsKey((UUID) row[2]));
+            jdbcTemplate.batchUpdate(FLUSH_SQL, corrections);
+        } finally {
+            touched = null;
+            flushLock.unlock();
+        }
+    }
+
+    // Columns added to an existing table start at zero
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        reconcile();
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    // Callers hold flushLock
+    private void flushLocked() {
+        Map<UUID, Delta> drained;
+        swapLock.writeLock().lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            drained = pending;
+            flushing = drained;
+            pending = new ConcurrentHashMap<>();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+
+        List<Object[]> batch = new ArrayList<>(drained.size());
+        drained.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> {
+                    long likes = entry.getValue().likes.sum();
+                    long comments = entry.getValue().comments.sum();
+                    if (likes != 0 || comments != 0) {
+                        batch.add(new Object[] { likes, comments, entry.getKey() });
+                    }
+                });
+
+        try {
+            jdbcTemplate.batchUpdate(FLUSH_SQL, batch);
+        } catch (RuntimeException ex) {
+            // Put the deltas back so the next flush retries them
+            batch.forEach(row -> add((UUID) row[2], (long) row[0], (long) row[1]));
+            throw ex;
+        } finally {
+            flushing = Map.of();
+        }
+    }
+
+    // Counted from inside the transaction until its delta is added (or dropped), so reconciliation
+    // can tell a committed row whose delta is still on its way
+    private void record(UUID postId, long likes, long comments) {
+        inFlight.merge(postId, 1, Integer::sum);
+        AfterCommit.run(() -> add(postId, likes, comments),
+                () -> inFlight.computeIfPresent(postId, (id, count) -> count == 1 ? null : count - 1));
+    }
+
+    private void add(UUID postId, long likes, long comments) {
+        swapLock.readLock().lock();
+        try {
+            Set<UUID> marks = touched;
+            if (marks != null) {
+                marks.add(postId);
+            }
+            Delta delta = pending.computeIfAbsent(postId, id -> new Delta());
+            delta.likes.add(likes);
+            delta.comments.add(comments);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private long sum(UUID postId, Function<Delta, LongAdder> counter) {
+        Delta delta = pending.get(postId);
+        Delta unwritten = flushing.get(postId);
+        return (delta == null ? 0 : counter.apply(delta).sum())
+                + (unwritten == null ? 0 : counter.apply(unwritten).sum());
+    }
+
+    private static final class Delta {
+        private final LongAdder likes = new LongAdder();
+        private final LongAdder comments = new LongAdder();
+    }
+}
@@ -0,0 +1,109 @@
+package com.madagha.backend.post.service;
+
+import com.madagha.backend.like.repository.LikeRepository;
+import com.madagha.backend.media.repository.MediaRepository;
+import com.madagha.backend.media.service.MediaUrlSigner;
+import com.madagha.backend.post.dto.PostDto;
+import com.madagha.backend.post.entity.Post;
+import com.madagha.backend.user.dto.UserDto;
+import com.madagha.backend.user.entity.User;
+import com.madagha.backend.user.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Assembles {@link PostDto}s for a batch of posts with a fixed number of
+ * grouped queries (owners, media) regardless of how many posts are in the
+ * batch. Like and comment counts come from the denormalized post columns, and
+ * the viewer's liked flags are resolved with a single IN lookup. Media URLs
+ * are signed, so fetching them needs no further queries either.
+ */
+@Component
+@RequiredArgsConstructor
+public class PostDtoHydrator {
+
+    private final UserRepository userRepository;
+    private final MediaRepository mediaRepository;
+    private final LikeRepository likeRepository;
+    private final PostCounterService postCounterService;
+    private final MediaUrlSigner mediaUrlSigner;
+
+    public PostDto hydrate(Post post, UUID viewerId) {
+        return hydrate(List.of(post), viewerId).get(0);
+    }
+
+    public Page<PostDto> hydrate(Page<Post> posts, UUID viewerId) {
+        return new PageImpl<>(hydrate(posts.getContent(), viewerId), posts.getPageable(), posts.getTotalElements());
+    }
+
+    public Slice<PostDto> hydrate(Slice<Post> posts, UUID viewerId) {
+        return new SliceImpl<>(hydrate(posts.getContent(), viewerId), posts.getPageable(), posts.hasNext());
+    }
+
+    /**
+     * @param viewerId the authenticated user the likedByMe flags are resolved
+     *                 for, or {@code null} for anonymous callers
+     */
+    public List<PostDto> hydrate(List<Post> posts, UUID viewerId) {
+        if (posts.isEmpty()) {
+            return List.of();
+        }
+
+        List<UUID> postIds = posts.stream()
+                .map(Post::getId)
+                .collect(Collectors.toList());
+        Set<UUID> ownerIds = posts.stream()
+                .map(post -> post.getOwner().getId())
+                .collect(Collectors.toSet());
+
+        Map<UUID, User> owners = userRepository.findAllById(ownerIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        Map<UUID, List<String>> mediaUrls = mediaRepository.findByPostIdIn(postIds).stream()
+                .collect(Collectors.groupingBy(
+                        media -> media.getPost().getId(),
+                        Collectors.mapping(mediaUrlSigner::url, Collectors.toList())));
+
+        Set<UUID> likedPostIds = viewerId == null
+                ? Set.of()
+                : new HashSet<>(likeRepository.findLikedPostIds(viewerId, postIds));
+
+        return posts.stream()
+                .map(post -> PostDto.builder()
+                        .id(post.getId())
+                        .title(post.getTitle())
+                        .content(post.getContent())
+                        .owner(mapOwner(owners.get(post.getOwner().getId())))
+                        .mediaUrls(mediaUrls.getOrDefault(post.getId(), List.of()))
+                        .likeCount(postCounterService.getLikeCount(post))
+                        .commentCount(postCounterService.getCommentCount(post))
+                        .likedByMe(likedPostIds.contains(post.getId()))
+                        .createdAt(post.getCreatedAt())
+                        .updatedAt(post.getUpdatedAt())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    private UserDto mapOwner(User owner) {
+        return UserDto.builder()
+                .id(owner.getId())
+                .username(owner.getUsername())
+                .email(owner.getEmail())
+                .avatar(owner.getAvatar())
+                .role(owner.getRole())
+                .status(owner.getStatus())
+                .build();
+    }
+}
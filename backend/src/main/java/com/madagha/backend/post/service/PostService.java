@@ -2,42 +2,43 @@ package com.madagha.backend.post.service;
 
 import com.madagha.backend.comment.repository.CommentRepository;
 import com.madagha.backend.common.exception.ResourceNotFoundException;
+import com.madagha.backend.common.pagination.Cursor;
+import com.madagha.backend.common.pagination.CursorPage;
 import com.madagha.backend.common.exception.UnauthorizedException;
 import com.madagha.backend.like.repository.LikeRepository;
-import com.madagha.backend.media.entity.Media;
-import com.madagha.backend.media.repository.MediaRepository;
-import com.madagha.backend.notification.entity.Notification;
-import com.madagha.backend.notification.service.NotificationService;
+import com.madagha.backend.media.service.MediaService;
 import com.madagha.backend.post.dto.CreatePostRequest;
 import com.madagha.backend.post.dto.PostDto;
 import com.madagha.backend.post.entity.Post;
+import com.madagha.backend.post.event.PostPublishedEvent;
 import com.madagha.backend.post.repository.PostRepository;
-import com.madagha.backend.subscription.repository.SubscriptionRepository;
-import com.madagha.backend.user.dto.UserDto;
 import com.madagha.backend.user.entity.User;
 import com.madagha.backend.user.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class PostService {
 
         private final PostRepository postRepository;
-        private final MediaRepository mediaRepository;
+        private final MediaService mediaService;
         private final LikeRepository likeRepository;
         private final CommentRepository commentRepository;
         private final UserService userService;
-        private final SubscriptionRepository subscriptionRepository;
-        private final NotificationService notificationService;
+        private final ApplicationEventPublisher eventPublisher;
+        private final TimelineService timelineService;
+        private final PostDtoHydrator postDtoHydrator;
+        private final PostCounterService postCounterService;
 
         @Transactional
         public PostDto createPost(CreatePostRequest request, String username) {
@@ -47,21 +48,18 @@ public class PostService {
                                 .title(request.getTitle())
                                 .content(request.getContent())
                                 .owner(user)
+                                .fannedOut(timelineService.fansOut(user))
                                 .build();
 
-                Post savedPost = postRepository.save(post);
+                Post savedPost = postRepository.saveAndFlush(post);
 
-                // Notify subscribers about the new post
-                subscriptionRepository.findBySubscribedTo(user).forEach(subscription -> {
-                        User subscriber = subscription.getSubscriber();
-                        notificationService.createNotification(
-                                        subscriber,
-                                        Notification.NotificationType.POST,
-                                        user.getUsername() + " posted: " + savedPost.getTitle(),
-                                        savedPost.getId());
-                });
+                timelineService.onPostCreated(savedPost);
 
-                return mapToDto(savedPost);
+                // Subscribers are notified in the background once the post has committed
+                eventPublisher.publishEvent(new PostPublishedEvent(
+                                savedPost.getId(), user.getId(), user.getUsername(), savedPost.getTitle()));
+
+                return postDtoHydrator.hydrate(savedPost, user.getId());
         }
 
         @Transactional
@@ -79,7 +77,7 @@ public class PostService {
                 post.setContent(request.getContent());
 
                 Post updatedPost = postRepository.save(post);
-                return mapToDto(updatedPost);
+                return postDtoHydrator.hydrate(updatedPost, user.getId());
         }
 
         @Transactional
@@ -94,121 +92,68 @@ public class PostService {
                 }
 
                 // Delete associated media, likes, and comments (cascading delete)
-                mediaRepository.deleteByPostId(id);
+                mediaService.deleteMediaForPost(id);
                 likeRepository.deleteByPostId(id);
                 commentRepository.deleteByPostId(id);
+                timelineService.onPostDeleted(id);
+                postCounterService.discard(id);
 
                 // Delete the post itself
                 postRepository.delete(post);
         }
 
-        public PostDto getPostById(UUID id) {
+        public PostDto getPostById(UUID id, UUID viewerId) {
                         Post post = postRepository.findById(id)
                                         .orElseThrow(() -> new ResourceNotFoundException("Post not found with id: " + id));
                         if (post.isHidden()) {
                                 throw new ResourceNotFoundException("Post not found with id: " + id);
                         }
-                return mapToDto(post);
+                return postDtoHydrator.hydrate(post, viewerId);
         }
 
-        public Page<PostDto> getAllPosts(int page, int size) {
+        public Page<PostDto> getAllPosts(int page, int size, UUID viewerId) {
                 Pageable pageable = PageRequest.of(page, size);
                         Page<Post> posts = postRepository.findAllByHiddenFalseOrderByCreatedAtDesc(pageable);
 
-                // Fetch all media in one query to avoid N+1 problem
-                List<UUID> postIds = posts.getContent().stream()
-                                .map(Post::getId)
-                                .collect(Collectors.toList());
-
-                List<Media> allMedia = postIds.isEmpty() ? List.of() : mediaRepository.findByPostIdIn(postIds);
-
-                return posts.map(post -> mapToDto(post, allMedia));
+                return postDtoHydrator.hydrate(posts, viewerId);
         }
 
-        public Page<PostDto> getPostsByUser(UUID userId, int page, int size) {
+        public Page<PostDto> getPostsByUser(UUID userId, int page, int size, UUID viewerId) {
                 Pageable pageable = PageRequest.of(page, size);
                         Page<Post> posts = postRepository.findByOwnerIdAndHiddenFalseOrderByCreatedAtDesc(userId, pageable);
 
-                // Fetch all media in one query to avoid N+1 problem
-                List<UUID> postIds = posts.getContent().stream()
-                                .map(Post::getId)
-                                .collect(Collectors.toList());
-
-                List<Media> allMedia = postIds.isEmpty() ? List.of() : mediaRepository.findByPostIdIn(postIds);
-
-                return posts.map(post -> mapToDto(post, allMedia));
+                return postDtoHydrator.hydrate(posts, viewerId);
         }
 
-        public Page<PostDto> getFeedForUser(String username, int page, int size) {
+        public Slice<PostDto> getFeedForUser(String username, int page, int size) {
                 User user = userService.getCurrentUser(username);
 
-                // fetch subscriptions (users the current user follows)
+                // Read the materialized timeline (posts from users the current user follows)
                 Pageable pageable = PageRequest.of(page, size);
 
-                Page<Post> posts = postRepository.findVisiblePostsForSubscriber(user, pageable);
+                Slice<Post> posts = timelineService.getTimeline(user, pageable);
 
-                List<UUID> postIds = posts.getContent().stream()
-                                .map(Post::getId)
-                                .collect(Collectors.toList());
+                return postDtoHydrator.hydrate(posts, user.getId());
+        }
 
-                List<Media> allMedia = postIds.isEmpty() ? List.of() : mediaRepository.findByPostIdIn(postIds);
+        public CursorPage<PostDto> getPostsByUser(UUID userId, String cursor, int size, UUID viewerId) {
+                Cursor position = Cursor.decode(cursor);
+                List<Post> posts = postRepository.findVisibleByOwnerBefore(
+                                userId, position.getCreatedAt(), position.getId(), Cursor.probe(size));
 
-                return posts.map(post -> mapToDto(post, allMedia));
+                return CursorPage.of(posts, size, this::positionOf, slice -> postDtoHydrator.hydrate(slice, viewerId));
         }
 
-        private PostDto mapToDto(Post post) {
-                List<Media> mediaList = mediaRepository.findByPostId(post.getId());
-                List<String> mediaUrls = mediaList.stream()
-                                .map(media -> "/api/media/" + media.getName())
-                                .collect(Collectors.toList());
-
-                UserDto ownerDto = UserDto.builder()
-                                .id(post.getOwner().getId())
-                                .username(post.getOwner().getUsername())
-                                .email(post.getOwner().getEmail())
-                                .avatar(post.getOwner().getAvatar())
-                                .role(post.getOwner().getRole())
-                                .status(post.getOwner().getStatus())
-                                .build();
+        public CursorPage<PostDto> getFeedForUser(String username, String cursor, int size) {
+                User user = userService.getCurrentUser(username);
 
-                return PostDto.builder()
-                                .id(post.getId())
-                                .title(post.getTitle())
-                                .content(post.getContent())
-                                .owner(ownerDto)
-                                .mediaUrls(mediaUrls)
-                                .likeCount(likeRepository.countByPost(post))
-                                .commentCount(commentRepository.countByPost(post))
-                                .createdAt(post.getCreatedAt())
-                                .updatedAt(post.getUpdatedAt())
-                                .build();
-        }
+                List<Post> posts = timelineService.getTimelineBefore(user, Cursor.decode(cursor), Cursor.probe(size));
 
-        private PostDto mapToDto(Post post, List<Media> allMedia) {
-                List<String> mediaUrls = allMedia.stream()
-                                .filter(media -> media.getPost().getId().equals(post.getId()))
-                                .map(media -> "/api/media/" + media.getName())
-                                .collect(Collectors.toList());
-
-                UserDto ownerDto = UserDto.builder()
-                                .id(post.getOwner().getId())
-                                .username(post.getOwner().getUsername())
-                                .email(post.getOwner().getEmail())
-                                .avatar(post.getOwner().getAvatar())
-                                .role(post.getOwner().getRole())
-                                .status(post.getOwner().getStatus())
-                                .build();
+                return CursorPage.of(posts, size, this::positionOf,
+                                slice -> postDtoHydrator.hydrate(slice, user.getId()));
+        }
 
-                return PostDto.builder()
-                                .id(post.getId())
-                                .title(post.getTitle())
-                                .content(post.getContent())
-                                .owner(ownerDto)
-                                .mediaUrls(mediaUrls)
-                                .likeCount(likeRepository.countByPost(post))
-                                .commentCount(commentRepository.countByPost(post))
-                                .createdAt(post.getCreatedAt())
-                                .updatedAt(post.getUpdatedAt())
-                                .build();
+        private Cursor positionOf(Post post) {
+                return new Cursor(post.getCreatedAt(), post.getId());
         }
 }
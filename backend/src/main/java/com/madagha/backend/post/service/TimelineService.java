@@ -0,0 +1,130 @@
+package com.madagha.backend.post.service;
+
+import com.madagha.backend.common.pagination.Cursor;
+import com.madagha.backend.post.entity.Post;
+import com.madagha.backend.post.repository.PostRepository;
+import com.madagha.backend.post.repository.TimelineRepository;
+import com.madagha.backend.user.entity.User;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the materialized home timelines. Posts are pushed to every
+ * subscriber's timeline when published; posts by authors above the fan-out
+ * limit are skipped on write and merged into the feed at read time instead.
+ * The choice is recorded on the post ({@link Post#isFannedOut()}), so an
+ * author crossing the limit in either direction moves no existing post
+ * between the two paths.
+ */
+@Service
+@RequiredArgsConstructor
+public class TimelineService {
+
+        private static final Comparator<Post> NEWEST_FIRST = Comparator
+                        .comparing(Post::getCreatedAt)
+                        .thenComparing(Post::getId)
+                        .reversed();
+
+        private final TimelineRepository timelineRepository;
+        private final PostRepository postRepository;
+
+        @Value("${app.timeline.depth:500}")
+        private int depth;
+
+        @Value("${app.timeline.fanout-max-followers:5000}")
+        private long fanoutMaxFollowers;
+
+        /** Whether a post {@code author} publishes now is pushed to their followers' timelines. */
+        public boolean fansOut(User author) {
+                return author.getFollowerCount() <= fanoutMaxFollowers;
+        }
+
+        @Transactional
+        public void onPostCreated(Post post) {
+                if (!post.isFannedOut()) {
+                        return;
+                }
+                timelineRepository.fanOutToSubscribers(post.getId(), post.getOwner().getId(), post.getCreatedAt());
+        }
+
+        // Only the author's pushed posts are copied; their pulled ones are merged in at read time
+        @Transactional
+        public void onSubscribed(User subscriber, User author) {
+                timelineRepository.backfillFromAuthor(subscriber.getId(), author.getId(), depth);
+        }
+
+        @Transactional
+        public void onUnsubscribed(User subscriber, User author) {
+                timelineRepository.deleteByUserIdAndAuthorId(subscriber.getId(), author.getId());
+        }
+
+        @Transactional
+        public void onPostDeleted(UUID postId) {
+                timelineRepository.deleteByPostId(postId);
+        }
+
+        @Transactional
+        public void onUserDeleted(UUID userId) {
+                timelineRepository.deleteByUserIdOrAuthorId(userId);
+        }
+
+        @Transactional(readOnly = true)
+        public Slice<Post> getTimeline(User user, Pageable pageable) {
+                // Merge the pushed timeline with the posts of its authors that were not fanned out
+                int window = (int) Math.min(Integer.MAX_VALUE, pageable.getOffset() + pageable.getPageSize());
+                Pageable head = PageRequest.of(0, window);
+
+                Slice<Post> pushed = timelineRepository.findTimelinePosts(user, head);
+                Slice<Post> pulled = postRepository.findPulledForSubscriber(user, head);
+
+                List<Post> merged = new ArrayList<>(pushed.getContent());
+                merged.addAll(pulled.getContent());
+
+                List<Post> content = merged.stream()
+                                .sorted(NEWEST_FIRST)
+                                .skip(pageable.getOffset())
+                                .limit(pageable.getPageSize())
+                                .collect(Collectors.toList());
+
+                boolean hasNext = merged.size() > pageable.getOffset() + pageable.getPageSize()
+                                || pushed.hasNext() || pulled.hasNext();
+                return new SliceImpl<>(content, pageable, hasNext);
+        }
+
+        @Transactional(readOnly = true)
+        public List<Post> getTimelineBefore(User user, Cursor cursor, Pageable probe) {
+                List<Post> merged = new ArrayList<>(timelineRepository.findTimelinePostsBefore(
+                                user, cursor.getCreatedAt(), cursor.getId(), probe));
+                merged.addAll(postRepository.findPulledForSubscriberBefore(
+                                user, cursor.getCreatedAt(), cursor.getId(), probe));
+
+                return merged.stream()
+                                .sorted(NEWEST_FIRST)
+                                .limit(probe.getPageSize())
+                                .collect(Collectors.toList());
+        }
+
+        @Scheduled(fixedDelayString = "${app.timeline.trim-interval-ms:300000}")
+        @Transactional
+        public void trimTimelines() {
+                timelineRepository.trimToDepth(depth);
+        }
+
+        @Transactional
+        public int backfillAll() {
+                return timelineRepository.backfillAll(depth);
+        }
+}
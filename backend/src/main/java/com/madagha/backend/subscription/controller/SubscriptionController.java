@@ -1,6 +1,9 @@
 package com.madagha.backend.subscription.controller;
 
+import com.madagha.backend.common.pagination.CursorPage;
+import com.madagha.backend.subscription.dto.FollowSuggestionResponse;
 import com.madagha.backend.subscription.dto.SubscriptionResponse;
+import com.madagha.backend.subscription.service.FollowSuggestionService;
 import com.madagha.backend.subscription.service.SubscriptionService;
 import com.madagha.backend.user.entity.User;
 import lombok.RequiredArgsConstructor;
@@ -13,6 +16,7 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -22,6 +26,14 @@ import java.util.UUID;
 public class SubscriptionController {
 
     private final SubscriptionService subscriptionService;
+    private final FollowSuggestionService followSuggestionService;
+
+    @GetMapping("/suggestions")
+    public ResponseEntity<List<FollowSuggestionResponse>> getSuggestions(
+            @AuthenticationPrincipal User user,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(followSuggestionService.getSuggestions(user, limit));
+    }
 
     @PostMapping("/{userId}")
     public ResponseEntity<?> toggleSubscription(
@@ -60,6 +72,15 @@ public class SubscriptionController {
         return ResponseEntity.ok(subscriptions);
     }
 
+    @GetMapping(value = "/{userId}/subscriptions", params = "cursor")
+    public ResponseEntity<CursorPage<SubscriptionResponse>> getUserSubscriptionsSlice(
+            @PathVariable UUID userId,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        CursorPage<SubscriptionResponse> subscriptions = subscriptionService.getSubscriptions(userId, cursor, size);
+        return ResponseEntity.ok(subscriptions);
+    }
+
     @GetMapping("/{userId}/subscribers")
     public ResponseEntity<Page<SubscriptionResponse>> getUserSubscribers(
             @PathVariable UUID userId,
@@ -67,4 +88,13 @@ public class SubscriptionController {
         Page<SubscriptionResponse> subscribers = subscriptionService.getSubscribers(userId, pageable);
         return ResponseEntity.ok(subscribers);
     }
+
+    @GetMapping(value = "/{userId}/subscribers", params = "cursor")
+    public ResponseEntity<CursorPage<SubscriptionResponse>> getUserSubscribersSlice(
+            @PathVariable UUID userId,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        CursorPage<SubscriptionResponse> subscribers = subscriptionService.getSubscribers(userId, cursor, size);
+        return ResponseEntity.ok(subscribers);
+    }
 }
@@ -0,0 +1,17 @@
+package com.madagha.backend.subscription.dto;
+
+import com.madagha.backend.user.dto.UserDto;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FollowSuggestionResponse {
+    private UserDto user;
+    private int mutualCount; // followed by this many of the people you follow
+    private long followerCount;
+}
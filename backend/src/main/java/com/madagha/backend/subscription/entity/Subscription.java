@@ -15,6 +15,9 @@ import java.util.UUID;
 @Entity
 @Table(name = "subscriptions", uniqueConstraints = {
         @UniqueConstraint(columnNames = { "subscriber_id", "subscribed_to_id" })
+}, indexes = {
+        @Index(name = "idx_subscriptions_subscriber_created", columnList = "subscriber_id, created_at DESC, id DESC"),
+        @Index(name = "idx_subscriptions_subscribed_to_created", columnList = "subscribed_to_id, created_at DESC, id DESC")
 })
 @Data
 @NoArgsConstructor
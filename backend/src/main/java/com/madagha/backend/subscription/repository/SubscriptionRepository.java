@@ -5,8 +5,12 @@ import com.madagha.backend.user.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -25,6 +29,20 @@ public interface SubscriptionRepository extends JpaRepository<Subscription, UUID
 
     java.util.List<Subscription> findBySubscribedTo(User subscribedTo);
 
+    @Query("SELECT s FROM Subscription s WHERE s.subscriber = :user AND (s.createdAt < :createdAt OR (s.createdAt = :createdAt AND s.id < :id)) ORDER BY s.createdAt DESC, s.id DESC")
+    List<Subscription> findBySubscriberBefore(
+            @Param("user") User user,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") UUID id,
+            Pageable pageable);
+
+    @Query("SELECT s FROM Subscription s WHERE s.subscribedTo = :user AND (s.createdAt < :createdAt OR (s.createdAt = :createdAt AND s.id < :id)) ORDER BY s.createdAt DESC, s.id DESC")
+    List<Subscription> findBySubscribedToBefore(
+            @Param("user") User user,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") UUID id,
+            Pageable pageable);
+
     long countBySubscribedTo(User subscribedTo);
 
     long countBySubscriber(User subscriber);
@@ -0,0 +1,292 @@
+package com.madagha.backend.subscription.service;
+
+import com.madagha.backend.subscription.dto.FollowSuggestionResponse;
+import com.madagha.backend.user.dto.UserDto;
+import com.madagha.backend.user.entity.User;
+import com.madagha.backend.user.service.UserService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * "People you may know": ranks users followed by the people you follow
+ * (friends of friends) by how many of them follow each candidate, then by
+ * follower count. Lists are precomputed for everyone by a fork/join batch
+ * over a snapshot of {@link SocialGraphIndex} and recomputed on demand for a
+ * user whose follows, or whose followees' follows, changed since.
+ * <p>
+ * For users who follow more than {@code max-neighbors} accounts, the
+ * followees who themselves follow the fewest are used; a followee following
+ * thousands says little about any one of them. Rows longer than that are
+ * sampled evenly rather than cut off.
+ */
+@Slf4j
+@Service
+public class FollowSuggestionService {
+
+    private static final int BATCH_THRESHOLD = 256;
+
+    private final SocialGraphIndex socialGraphIndex;
+    private final UserService userService;
+    private final ForkJoinPool pool;
+
+    private final int listSize;
+    private final int maxNeighbors;
+
+    private volatile Map<UUID, List<Suggestion>> suggestions = new ConcurrentHashMap<>();
+    private volatile List<UUID> popular = List.of();
+    // Users invalidated while refreshAll is computing, dropped from its result when it lands
+    private volatile Set<UUID> invalidatedDuringRefresh;
+    // Bumped on every invalidation so an on-demand ranking that raced one is not cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public FollowSuggestionService(
+            SocialGraphIndex socialGraphIndex,
+            UserService userService,
+            @Value("${app.suggestions.size:20}") int listSize,
+            @Value("${app.suggestions.max-neighbors:500}") int maxNeighbors,
+            @Value("${app.suggestions.parallelism:2}") int parallelism) {
+        this.socialGraphIndex = socialGraphIndex;
+        this.userService = userService;
+        this.listSize = listSize;
+        this.maxNeighbors = maxNeighbors;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    @Scheduled(fixedDelayString = "${app.suggestions.refresh-interval-ms:3600000}",
+            initialDelayString = "${app.suggestions.initial-delay-ms:60000}")
+    public void refreshAll() {
+        if (!socialGraphIndex.isReady()) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        Set<UUID> invalidated = ConcurrentHashMap.newKeySet();
+        invalidatedDuringRefresh = invalidated;
+        SocialGraphIndex.GraphView graph = socialGraphIndex.snapshot();
+
+        Map<UUID, List<Suggestion>> fresh = new ConcurrentHashMap<>();
+        pool.invoke(new Batch(graph, 0, graph.size(), fresh));
+        popular = IntStream.range(0, graph.size())
+                .filter(id -> graph.uuidOf(id) != null)
+                .boxed()
+                .sorted(Comparator.comparingInt((Integer id) -> graph.followers(id).length).reversed())
+                .limit(listSize * 2L)
+                .map(graph::uuidOf)
+                .collect(Collectors.toList());
+        suggestions = fresh;
+        // An invalidation either lands in the set or, once past this point, hits the new map itself
+        fresh.keySet().removeAll(invalidated);
+        invalidatedDuringRefresh = null;
+
+        log.info("Computed follow suggestions for {} users in {} ms", fresh.size(),
+                System.currentTimeMillis() - started);
+    }
+
+    public List<FollowSuggestionResponse> getSuggestions(User user, int limit) {
+        int size = Math.max(1, Math.min(limit, listSize));
+        List<Suggestion> ranked = suggestions.get(user.getId());
+        if (ranked == null && socialGraphIndex.isReady()) {
+            ranked = rankLive(user.getId());
+        }
+
+        // Follows made since the list was computed are filtered out here
+        Map<UUID, Integer> picked = new HashMap<>();
+        Set<UUID> order = new LinkedHashSet<>();
+        for (Suggestion suggestion : ranked == null ? List.<Suggestion>of() : ranked) {
+            if (order.size() < size && isCandidate(user.getId(), suggestion.userId)) {
+                order.add(suggestion.userId);
+                picked.put(suggestion.userId, suggestion.mutualCount);
+            }
+        }
+        for (UUID candidate : popular) {
+            if (order.size() < size && !order.contains(candidate) && isCandidate(user.getId(), candidate)) {
+                order.add(candidate);
+            }
+        }
+
+        Map<UUID, UserDto> users = userService.getUsersByIds(order);
+        return order.stream()
+                .filter(users::containsKey)
+                .map(id -> FollowSuggestionResponse.builder()
+                        .user(users.get(id))
+                        .mutualCount(picked.getOrDefault(id, 0))
+                        .followerCount(socialGraphIndex.getFollowerCount(id))
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Drops the precomputed lists a follow toggle by {@code userId} made
+     * stale, theirs and their followers' (whose friends of friends changed),
+     * so the next request ranks against the live graph.
+     */
+    public void onFollowsChanged(UUID userId) {
+        List<UUID> affected = new ArrayList<>(socialGraphIndex.getFollowerIds(userId));
+        affected.add(userId);
+        invalidations.incrementAndGet();
+        Set<UUID> invalidated = invalidatedDuringRefresh;
+        if (invalidated != null) {
+            invalidated.addAll(affected);
+        }
+        Map<UUID, List<Suggestion>> current = suggestions;
+        affected.forEach(current::remove);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private boolean isCandidate(UUID userId, UUID candidate) {
+        return !candidate.equals(userId) && !socialGraphIndex.isFollowing(userId, candidate);
+    }
+
+    private List<Suggestion> rank(SocialGraphIndex.GraphView graph, int user) {
+        return best(describe(graph, topSlice(mutuals(neighbourhood(graph, user)))));
+    }
+
+    // Same ranking against the live graph, holding its read lock only to copy row references and counts
+    private List<Suggestion> rankLive(UUID userId) {
+        long seen = invalidations.get();
+        Neighbourhood hood = socialGraphIndex.read(graph -> neighbourhood(graph, graph.idOf(userId)));
+        Map<Integer, Integer> slice = topSlice(mutuals(hood));
+        List<Suggestion> ranked = best(socialGraphIndex.read(graph -> describe(graph, slice)));
+        if (invalidations.get() == seen) {
+            suggestions.put(userId, ranked);
+        }
+        return ranked;
+    }
+
+    private Neighbourhood neighbourhood(SocialGraphIndex.GraphView graph, int user) {
+        if (user < 0) {
+            return null;
+        }
+        int[] followed = graph.following(user);
+        int[] neighbours = followed;
+        if (followed.length > maxNeighbors) {
+            neighbours = Arrays.stream(followed).boxed()
+                    .sorted(Comparator.comparingInt(id -> graph.following(id).length))
+                    .limit(maxNeighbors)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+        int[][] rows = new int[neighbours.length][];
+        for (int i = 0; i < neighbours.length; i++) {
+            rows[i] = graph.following(neighbours[i]);
+        }
+        return new Neighbourhood(user, followed, rows);
+    }
+
+    private Map<Integer, Integer> mutuals(Neighbourhood hood) {
+        Map<Integer, Integer> mutuals = new HashMap<>();
+        if (hood == null) {
+            return mutuals;
+        }
+        for (int[] row : hood.rows) {
+            int step = (row.length + maxNeighbors - 1) / maxNeighbors;
+            for (int j = 0; j < row.length; j += Math.max(1, step)) {
+                int candidate = row[j];
+                if (candidate != hood.user && Arrays.binarySearch(hood.followed, candidate) < 0) {
+                    mutuals.merge(candidate, 1, Integer::sum);
+                }
+            }
+        }
+        return mutuals;
+    }
+
+    // Candidates that can still make the list on mutual count alone, ties at the cut included
+    private Map<Integer, Integer> topSlice(Map<Integer, Integer> mutuals) {
+        if (mutuals.size() <= listSize) {
+            return mutuals;
+        }
+        int cutoff = mutuals.values().stream()
+                .sorted(Comparator.reverseOrder())
+                .skip(listSize - 1L)
+                .findFirst()
+                .orElse(0);
+        mutuals.values().removeIf(count -> count < cutoff);
+        return mutuals;
+    }
+
+    private List<Suggestion> describe(SocialGraphIndex.GraphView graph, Map<Integer, Integer> slice) {
+        List<Suggestion> candidates = new ArrayList<>(slice.size());
+        slice.forEach((id, mutualCount) -> {
+            UUID userId = graph.uuidOf(id);
+            if (userId != null) {
+                candidates.add(new Suggestion(userId, mutualCount, graph.followers(id).length));
+            }
+        });
+        return candidates;
+    }
+
+    private List<Suggestion> best(List<Suggestion> candidates) {
+        return candidates.stream()
+                .sorted(Comparator.comparingInt((Suggestion suggestion) -> suggestion.mutualCount)
+                        .thenComparingInt(suggestion -> suggestion.followerCount)
+                        .reversed())
+                .limit(listSize)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    private final class Batch extends RecursiveAction {
+        private final SocialGraphIndex.GraphView graph;
+        private final int from;
+        private final int to;
+        private final Map<UUID, List<Suggestion>> results;
+
+        private Batch(SocialGraphIndex.GraphView graph, int from, int to, Map<UUID, List<Suggestion>> results) {
+            this.graph = graph;
+            this.from = from;
+            this.to = to;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BATCH_THRESHOLD) {
+                for (int user = from; user < to; user++) {
+                    UUID userId = graph.uuidOf(user);
+                    if (userId != null && graph.following(user).length > 0) {
+                        results.put(userId, rank(graph, user));
+                    }
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Batch(graph, from, middle, results), new Batch(graph, middle, to, results));
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static final class Neighbourhood {
+        private final int user;
+        private final int[] followed;
+        private final int[][] rows;
+    }
+
+    @RequiredArgsConstructor
+    private static final class Suggestion {
+        private final UUID userId;
+        private final int mutualCount;
+        private final int followerCount;
+    }
+}
@@ -0,0 +1,342 @@
+package com.madagha.backend.subscription.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * In-memory copy of the subscriptions graph. User IDs are remapped to dense
+ * ints and each user keeps sorted following and follower arrays, so follow
+ * checks are a binary search and counts are an array length.
+ * <p>
+ * Built from the database once the application is ready and kept current by
+ * {@link SubscriptionService} after each commit. Until the first build
+ * finishes callers fall back to the database.
+ */
+@Slf4j
+@Component
+public class SocialGraphIndex {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Map<UUID, Integer> ids = new HashMap<>();
+    private UUID[] uuids = new UUID[0];
+    private int[][] following = new int[0][];
+    private int[][] followers = new int[0][];
+    private int size;
+
+    // Writes that land while a rebuild is reading the table are replayed on top of it
+    private List<Runnable> pendingDuringRebuild;
+    private volatile boolean ready;
+
+    public SocialGraphIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        SocialGraphIndex fresh = new SocialGraphIndex(jdbcTemplate);
+        jdbcTemplate.query("SELECT id FROM users", rs -> {
+            fresh.idOf(rs.getObject(1, UUID.class));
+        });
+        Map<Integer, List<Integer>> followingLists = new HashMap<>();
+        Map<Integer, List<Integer>> followerLists = new HashMap<>();
+        jdbcTemplate.query("SELECT subscriber_id, subscribed_to_id FROM subscriptions", rs -> {
+            int subscriber = fresh.idOf(rs.getObject(1, UUID.class));
+            int target = fresh.idOf(rs.getObject(2, UUID.class));
+            followingLists.computeIfAbsent(subscriber, key -> new ArrayList<>()).add(target);
+            followerLists.computeIfAbsent(target, key -> new ArrayList<>()).add(subscriber);
+        });
+        followingLists.forEach((user, targets) -> fresh.following[user] = toSortedArray(targets));
+        followerLists.forEach((user, sources) -> fresh.followers[user] = toSortedArray(sources));
+
+        lock.writeLock().lock();
+        try {
+            ids = fresh.ids;
+            uuids = fresh.uuids;
+            following = fresh.following;
+            followers = fresh.followers;
+            size = fresh.size;
+            pendingDuringRebuild.forEach(Runnable::run);
+            pendingDuringRebuild = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Social graph index built: {} users, {} subscriptions", size,
+                Arrays.stream(following, 0, size).mapToLong(row -> row.length).sum());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public boolean contains(UUID userId) {
+        lock.readLock().lock();
+        try {
+            return ids.containsKey(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isFollowing(UUID subscriberId, UUID targetId) {
+        lock.readLock().lock();
+        try {
+            Integer subscriber = ids.get(subscriberId);
+            Integer target = ids.get(targetId);
+            return subscriber != null && target != null
+                    && Arrays.binarySearch(following[subscriber], target) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getFollowerCount(UUID userId) {
+        lock.readLock().lock();
+        try {
+            Integer user = ids.get(userId);
+            return user == null ? 0 : followers[user].length;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<UUID> getFollowerIds(UUID userId) {
+        lock.readLock().lock();
+        try {
+            Integer user = ids.get(userId);
+            if (user == null) {
+                return List.of();
+            }
+            List<UUID> followerIds = new ArrayList<>(followers[user].length);
+            for (int follower : followers[user]) {
+                followerIds.add(uuids[follower]);
+            }
+            return followerIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getFollowingCount(UUID userId) {
+        lock.readLock().lock();
+        try {
+            Integer user = ids.get(userId);
+            return user == null ? 0 : following[user].length;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs {@code reader} against the live graph under the read lock. Keep it
+     * short; writers wait for it.
+     */
+    public <T> T read(Function<GraphView, T> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.apply(new Snapshot(ids, uuids, following, followers, size));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Point-in-time copy for long-running readers such as batch jobs. Rows are
+     * never mutated in place, so only the outer arrays are copied.
+     */
+    public GraphView snapshot() {
+        lock.readLock().lock();
+        try {
+            return new Snapshot(new HashMap<>(ids), Arrays.copyOf(uuids, size), Arrays.copyOf(following, size),
+                    Arrays.copyOf(followers, size), size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void addUser(UUID userId) {
+        write(() -> idOf(userId));
+    }
+
+    public void follow(UUID subscriberId, UUID targetId) {
+        write(() -> {
+            int subscriber = idOf(subscriberId);
+            int target = idOf(targetId);
+            following[subscriber] = insert(following[subscriber], target);
+            followers[target] = insert(followers[target], subscriber);
+        });
+    }
+
+    public void unfollow(UUID subscriberId, UUID targetId) {
+        write(() -> {
+            Integer subscriber = ids.get(subscriberId);
+            Integer target = ids.get(targetId);
+            if (subscriber == null || target == null) {
+                return;
+            }
+            following[subscriber] = remove(following[subscriber], target);
+            followers[target] = remove(followers[target], subscriber);
+        });
+    }
+
+    public void removeUser(UUID userId) {
+        write(() -> {
+            Integer user = ids.remove(userId);
+            if (user == null) {
+                return;
+            }
+            for (int target : following[user]) {
+                followers[target] = remove(followers[target], user);
+            }
+            for (int subscriber : followers[user]) {
+                following[subscriber] = remove(following[subscriber], user);
+            }
+            following[user] = EMPTY;
+            followers[user] = EMPTY;
+            uuids[user] = null;
+        });
+    }
+
+    private void write(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            change.run();
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Callers hold the write lock (or own the instance during a rebuild)
+    private int idOf(UUID userId) {
+        Integer existing = ids.get(userId);
+        if (existing != null) {
+            return existing;
+        }
+        if (size == uuids.length) {
+            int capacity = Math.max(16, size * 2);
+            uuids = Arrays.copyOf(uuids, capacity);
+            following = Arrays.copyOf(following, capacity);
+            followers = Arrays.copyOf(followers, capacity);
+        }
+        int id = size++;
+        uuids[id] = userId;
+        following[id] = EMPTY;
+        followers[id] = EMPTY;
+        ids.put(userId, id);
+        return id;
+    }
+
+    private static int[] insert(int[] row, int value) {
+        int position = Arrays.binarySearch(row, value);
+        if (position >= 0) {
+            return row;
+        }
+        int at = -position - 1;
+        int[] grown = new int[row.length + 1];
+        System.arraycopy(row, 0, grown, 0, at);
+        grown[at] = value;
+        System.arraycopy(row, at, grown, at + 1, row.length - at);
+        return grown;
+    }
+
+    private static int[] remove(int[] row, int value) {
+        int at = Arrays.binarySearch(row, value);
+        if (at < 0) {
+            return row;
+        }
+        if (row.length == 1) {
+            return EMPTY;
+        }
+        int[] shrunk = new int[row.length - 1];
+        System.arraycopy(row, 0, shrunk, 0, at);
+        System.arraycopy(row, at + 1, shrunk, at, row.length - at - 1);
+        return shrunk;
+    }
+
+    private static int[] toSortedArray(List<Integer> values) {
+        int[] array = values.stream().mapToInt(Integer::intValue).sorted().distinct().toArray();
+        return array.length == 0 ? EMPTY : array;
+    }
+
+    /**
+     * Read-only view of the graph in dense int IDs. Slots of deleted users
+     * have a {@code null} UUID and empty rows.
+     */
+    public interface GraphView {
+        int size();
+
+        /** Dense ID of the user, or -1 when the user is not in the graph. */
+        int idOf(UUID userId);
+
+        UUID uuidOf(int id);
+
+        /** Sorted IDs the user follows. Must not be modified. */
+        int[] following(int id);
+
+        /** Sorted IDs following the user. Must not be modified. */
+        int[] followers(int id);
+    }
+
+    @RequiredArgsConstructor
+    private static final class Snapshot implements GraphView {
+        private final Map<UUID, Integer> ids;
+        private final UUID[] uuids;
+        private final int[][] following;
+        private final int[][] followers;
+        private final int size;
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public int idOf(UUID userId) {
+            Integer id = ids.get(userId);
+            return id == null ? -1 : id;
+        }
+
+        @Override
+        public UUID uuidOf(int id) {
+            return uuids[id];
+        }
+
+        @Override
+        public int[] following(int id) {
+            return following[id];
+        }
+
+        @Override
+        public int[] followers(int id) {
+            return followers[id];
+        }
+    }
+}
@@ -2,8 +2,12 @@ package com.madagha.backend.subscription.service;
 
 import com.madagha.backend.common.exception.BadRequestException;
 import com.madagha.backend.common.exception.ResourceNotFoundException;
+import com.madagha.backend.common.pagination.Cursor;
+import com.madagha.backend.common.pagination.CursorPage;
+import com.madagha.backend.common.transaction.AfterCommit;
 import com.madagha.backend.notification.entity.Notification;
 import com.madagha.backend.notification.service.NotificationService;
+import com.madagha.backend.post.service.TimelineService;
 import com.madagha.backend.subscription.dto.SubscriptionResponse;
 import com.madagha.backend.subscription.entity.Subscription;
 import com.madagha.backend.subscription.repository.SubscriptionRepository;
@@ -11,10 +15,14 @@ import com.madagha.backend.user.entity.User;
 import com.madagha.backend.user.repository.UserRepository;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.UUID;
 
 @Service
@@ -24,6 +32,9 @@ public class SubscriptionService {
         private final SubscriptionRepository subscriptionRepository;
         private final UserRepository userRepository;
         private final NotificationService notificationService;
+        private final TimelineService timelineService;
+        private final SocialGraphIndex socialGraphIndex;
+        private final FollowSuggestionService followSuggestionService;
 
         @Transactional
         public SubscriptionResponse toggleSubscription(UUID targetUserId, User subscriber) {
@@ -39,6 +50,12 @@ public class SubscriptionService {
 
                 if (existingSubscription.isPresent()) {
                         subscriptionRepository.delete(existingSubscription.get());
+                        userRepository.adjustFollowCounts(subscriber.getId(), targetUserId, -1);
+                        timelineService.onUnsubscribed(subscriber, targetUser);
+                        AfterCommit.run(() -> {
+                                socialGraphIndex.unfollow(subscriber.getId(), targetUserId);
+                                followSuggestionService.onFollowsChanged(subscriber.getId());
+                        });
                         notificationService.deleteLatestNotification(
                                         targetUser,
                                         Notification.NotificationType.SUBSCRIPTION,
@@ -58,7 +75,13 @@ public class SubscriptionService {
                                         .subscribedTo(targetUser)
                                         .build();
 
-                        subscription = subscriptionRepository.save(subscription);
+                        subscription = subscriptionRepository.saveAndFlush(subscription);
+                        userRepository.adjustFollowCounts(subscriber.getId(), targetUserId, 1);
+                        timelineService.onSubscribed(subscriber, targetUser);
+                        AfterCommit.run(() -> {
+                                socialGraphIndex.follow(subscriber.getId(), targetUserId);
+                                followSuggestionService.onFollowsChanged(subscriber.getId());
+                        });
 
                         // Create notification for the subscribed user
                         notificationService.createNotification(
@@ -72,6 +95,9 @@ public class SubscriptionService {
         }
 
         public boolean isSubscribed(UUID targetUserId, User subscriber) {
+                if (isIndexed(targetUserId)) {
+                        return socialGraphIndex.isFollowing(subscriber.getId(), targetUserId);
+                }
                 User targetUser = userRepository.findById(targetUserId)
                                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
                 return subscriptionRepository.existsBySubscriberAndSubscribedTo(subscriber, targetUser);
@@ -91,16 +117,72 @@ public class SubscriptionService {
                                 .map(this::mapToResponse);
         }
 
-        public long getSubscriberCount(UUID userId) {
+        public CursorPage<SubscriptionResponse> getSubscriptions(UUID userId, String cursor, int size) {
                 User user = userRepository.findById(userId)
                                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-                return subscriptionRepository.countBySubscribedTo(user);
+                Cursor position = Cursor.decode(cursor);
+                List<Subscription> subscriptions = subscriptionRepository.findBySubscriberBefore(
+                                user, position.getCreatedAt(), position.getId(), Cursor.probe(size));
+                return CursorPage.map(subscriptions, size, this::positionOf, this::mapToResponse);
         }
 
-        public long getSubscriptionCount(UUID userId) {
+        public CursorPage<SubscriptionResponse> getSubscribers(UUID userId, String cursor, int size) {
                 User user = userRepository.findById(userId)
                                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-                return subscriptionRepository.countBySubscriber(user);
+                Cursor position = Cursor.decode(cursor);
+                List<Subscription> subscribers = subscriptionRepository.findBySubscribedToBefore(
+                                user, position.getCreatedAt(), position.getId(), Cursor.probe(size));
+                return CursorPage.map(subscribers, size, this::positionOf, this::mapToResponse);
+        }
+
+        public long getSubscriberCount(UUID userId) {
+                if (isIndexed(userId)) {
+                        return socialGraphIndex.getFollowerCount(userId);
+                }
+                return userRepository.findById(userId)
+                                .orElseThrow(() -> new ResourceNotFoundException("User not found"))
+                                .getFollowerCount();
+        }
+
+        public long getSubscriptionCount(UUID userId) {
+                if (isIndexed(userId)) {
+                        return socialGraphIndex.getFollowingCount(userId);
+                }
+                return userRepository.findById(userId)
+                                .orElseThrow(() -> new ResourceNotFoundException("User not found"))
+                                .getFollowingCount();
+        }
+
+        @Scheduled(cron = "${app.users.follow-counts.reconcile-cron:0 0 4 * * *}")
+        @Transactional
+        public void reconcileFollowCounts() {
+                userRepository.reconcileFollowCounts();
+        }
+
+        // Columns added to an existing table start at zero
+        @EventListener(ApplicationReadyEvent.class)
+        @Transactional
+        public void reconcileFollowCountsOnStartup() {
+                userRepository.reconcileFollowCounts();
+        }
+
+        // Users registered since the last rebuild are not in the index yet and go to the database once
+        private boolean isIndexed(UUID userId) {
+                if (!socialGraphIndex.isReady()) {
+                        return false;
+                }
+                if (socialGraphIndex.contains(userId)) {
+                        return true;
+                }
+                if (userRepository.existsById(userId)) {
+                        socialGraphIndex.addUser(userId);
+                        return true;
+                }
+                return false;
+        }
+
+        private Cursor positionOf(Subscription subscription) {
+                return new Cursor(subscription.getCreatedAt(), subscription.getId());
         }
 
         private SubscriptionResponse mapToResponse(Subscription subscription) {
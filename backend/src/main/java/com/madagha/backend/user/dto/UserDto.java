@@ -23,4 +23,6 @@ public class UserDto {
     private UserStatus status;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private long followerCount;
+    private long followingCount;
 }
@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -59,6 +60,21 @@ public class User implements UserDetails {
     @LastModifiedDate
     private LocalDateTime updatedAt;
 
+    // Maintained by SubscriptionService with set-based UPDATEs, never by entity saves
+    @Column(name = "follower_count", nullable = false, updatable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private long followerCount = 0;
+
+    @Column(name = "following_count", nullable = false, updatable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private long followingCount = 0;
+
+    // Notifications created at or before this instant count as read; only moved by markAllAsRead
+    @Column(name = "notifications_read_through", updatable = false)
+    private LocalDateTime notificationsReadThrough;
+
     // UserDetails implementation
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
@@ -3,8 +3,12 @@ package com.madagha.backend.user.repository;
 import com.madagha.backend.user.entity.User;
 import com.madagha.backend.user.entity.UserStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -20,4 +24,41 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     boolean existsByEmail(String email);
 
     List<User> findByStatus(UserStatus status);
+
+    // Both sides of a follow in one statement, so the counts move together with the subscription row
+    @Modifying
+    @Query(value = "UPDATE users SET "
+            + "follower_count = follower_count + CASE WHEN id = :targetId THEN :delta ELSE 0 END, "
+            + "following_count = following_count + CASE WHEN id = :subscriberId THEN :delta ELSE 0 END "
+            + "WHERE id IN (:subscriberId, :targetId)", nativeQuery = true)
+    int adjustFollowCounts(
+            @Param("subscriberId") UUID subscriberId,
+            @Param("targetId") UUID targetId,
+            @Param("delta") long delta);
+
+    @Modifying
+    @Query(value = "UPDATE users SET following_count = following_count - 1 "
+            + "WHERE id IN (SELECT s.subscriber_id FROM subscriptions s WHERE s.subscribed_to_id = :userId)",
+            nativeQuery = true)
+    int decrementFollowingOfFollowers(@Param("userId") UUID userId);
+
+    @Modifying
+    @Query(value = "UPDATE users SET follower_count = follower_count - 1 "
+            + "WHERE id IN (SELECT s.subscribed_to_id FROM subscriptions s WHERE s.subscriber_id = :userId)",
+            nativeQuery = true)
+    int decrementFollowersOfFollowed(@Param("userId") UUID userId);
+
+    @Modifying
+    @Query(value = "UPDATE users u SET follower_count = c.followers, following_count = c.following "
+            + "FROM (SELECT u2.id, "
+            + "(SELECT COUNT(*) FROM subscriptions s WHERE s.subscribed_to_id = u2.id) AS followers, "
+            + "(SELECT COUNT(*) FROM subscriptions s WHERE s.subscriber_id = u2.id) AS following "
+            + "FROM users u2) c "
+            + "WHERE u.id = c.id AND (u.follower_count <> c.followers OR u.following_count <> c.following)",
+            nativeQuery = true)
+    int reconcileFollowCounts();
+
+    @Modifying
+    @Query("UPDATE User u SET u.notificationsReadThrough = :readThrough WHERE u.id = :userId AND (u.notificationsReadThrough IS NULL OR u.notificationsReadThrough < :readThrough)")
+    int advanceNotificationsReadThrough(@Param("userId") UUID userId, @Param("readThrough") LocalDateTime readThrough);
 }
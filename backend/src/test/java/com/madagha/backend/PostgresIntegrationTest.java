@@ -0,0 +1,58 @@
+package com.madagha.backend;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+/**
+ * Base for tests of code that relies on PostgreSQL itself (ON CONFLICT,
+ * data-modifying CTEs, advisory locks, partitions), which H2 cannot stand in
+ * for. One container serves every subclass, since the Spring context they
+ * share is cached across test classes. Scheduled jobs are pushed out of the
+ * way so tests drive flushes and collections themselves.
+ */
+@SpringBootTest(properties = {
+        "app.counters.flush-interval-ms=3600000",
+        "app.counters.reconcile-cron=-",
+        "app.media.blobs.gc-cron=-",
+        "app.media.chunked.cleanup-cron=-",
+        "app.media.reclaimer.cron=-",
+        "app.notifications.partitions.maintenance-cron=-",
+        "app.suggestions.initial-delay-ms=3600000",
+        "app.timeline.trim-interval-ms=3600000",
+        "app.users.follow-counts.reconcile-cron=-"
+})
+public abstract class PostgresIntegrationTest {
+
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final Path UPLOAD_DIR;
+
+    static {
+        POSTGRES.start();
+        try {
+            UPLOAD_DIR = Files.createTempDirectory("media-uploads");
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @DynamicPropertySource
+    static void uploadDir(DynamicPropertyRegistry registry) {
+        registry.add("app.upload.dir", UPLOAD_DIR::toString);
+    }
+
+    /** A username that is unique across the shared database and fits the 20 character column. */
+    protected static String uniqueName(String prefix) {
+        return prefix + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
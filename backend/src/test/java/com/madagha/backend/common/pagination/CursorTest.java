@@ -0,0 +1,65 @@
+package com.madagha.backend.common.pagination;
+
+import com.madagha.backend.common.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CursorTest {
+
+    @Test
+    void encodedCursorDecodesToTheSamePosition() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 3, 1, 12, 30, 15, 123456000);
+        UUID id = UUID.randomUUID();
+
+        Cursor decoded = Cursor.decode(new Cursor(createdAt, id).encode());
+
+        assertThat(decoded.getCreatedAt()).isEqualTo(createdAt);
+        assertThat(decoded.getId()).isEqualTo(id);
+    }
+
+    @Test
+    void encodedCursorIsUrlSafe() {
+        String token = new Cursor(LocalDateTime.now(), UUID.randomUUID()).encode();
+
+        assertThat(token).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void missingCursorStartsFromTheNewestRow() {
+        assertThat(Cursor.decode(null).getCreatedAt().getYear()).isEqualTo(9999);
+        assertThat(Cursor.decode("  ").getCreatedAt().getYear()).isEqualTo(9999);
+    }
+
+    @Test
+    void garbageIsABadRequest() {
+        String noSeparator = Base64.getUrlEncoder().encodeToString("2024-01-01T00:00".getBytes(StandardCharsets.UTF_8));
+        String badDate = Base64.getUrlEncoder().encodeToString(
+                ("yesterday|" + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> Cursor.decode("not base64!")).isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> Cursor.decode(noSeparator)).isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> Cursor.decode(badDate)).isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void pageSizeIsClamped() {
+        assertThat(Cursor.clampSize(0)).isEqualTo(1);
+        assertThat(Cursor.clampSize(-5)).isEqualTo(1);
+        assertThat(Cursor.clampSize(20)).isEqualTo(20);
+        assertThat(Cursor.clampSize(10_000)).isEqualTo(Cursor.MAX_PAGE_SIZE);
+    }
+
+    @Test
+    void probeFetchesOneExtraRow() {
+        assertThat(Cursor.probe(20).getPageSize()).isEqualTo(21);
+        assertThat(Cursor.probe(10_000).getPageSize()).isEqualTo(Cursor.MAX_PAGE_SIZE + 1);
+        assertThat(Cursor.probe(20).getPageNumber()).isZero();
+    }
+}
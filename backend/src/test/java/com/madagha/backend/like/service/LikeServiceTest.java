@@ -0,0 +1,169 @@
+package com.madagha.backend.like.service;
+
+import com.madagha.backend.PostgresIntegrationTest;
+import com.madagha.backend.common.exception.ResourceNotFoundException;
+import com.madagha.backend.like.dto.LikeResponse;
+import com.madagha.backend.notification.entity.Notification;
+import com.madagha.backend.notification.repository.NotificationRepository;
+import com.madagha.backend.post.entity.Post;
+import com.madagha.backend.post.repository.PostRepository;
+import com.madagha.backend.post.service.PostCounterService;
+import com.madagha.backend.user.entity.User;
+import com.madagha.backend.user.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LikeServiceTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private LikeService likeService;
+
+    @Autowired
+    private PostCounterService counters;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User owner;
+    private Post post;
+
+    @BeforeEach
+    void setUp() {
+        owner = user("owner");
+        post = postRepository.save(Post.builder()
+                .title("Liked")
+                .content("A post to like")
+                .owner(owner)
+                .build());
+    }
+
+    @Test
+    void toggleLikesAndUnlikes() {
+        User liker = user("liker");
+
+        LikeResponse liked = likeService.toggleLike(post.getId(), liker);
+
+        assertThat(liked.isLiked()).isTrue();
+        assertThat(liked.getLikeCount()).isEqualTo(1);
+        assertThat(ownerNotification()).hasValueSatisfying(n -> assertThat(n.getActorCount()).isEqualTo(1));
+
+        LikeResponse unliked = likeService.toggleLike(post.getId(), liker);
+
+        assertThat(unliked.isLiked()).isFalse();
+        assertThat(unliked.getLikeCount()).isZero();
+        assertThat(ownerNotification()).isEmpty();
+    }
+
+    @Test
+    void likeIsIdempotent() {
+        User liker = user("liker");
+
+        likeService.like(post.getId(), liker);
+        LikeResponse again = likeService.like(post.getId(), liker);
+        counters.flush();
+
+        assertThat(again.isLiked()).isTrue();
+        assertThat(again.getLikeCount()).isEqualTo(1);
+        assertThat(storedLikes()).isEqualTo(1);
+        assertThat(ownerNotification()).hasValueSatisfying(n -> assertThat(n.getActorCount()).isEqualTo(1));
+    }
+
+    @Test
+    void unlikeWithoutALikeChangesNothing() {
+        LikeResponse response = likeService.unlike(post.getId(), user("liker"));
+
+        assertThat(response.isLiked()).isFalse();
+        assertThat(response.getLikeCount()).isZero();
+        assertThat(ownerNotification()).isEmpty();
+    }
+
+    @Test
+    void likingYourOwnPostDoesNotNotify() {
+        likeService.like(post.getId(), owner);
+
+        assertThat(ownerNotification()).isEmpty();
+    }
+
+    @Test
+    void concurrentLikesAreAllCountedInOneGroup() throws Exception {
+        int likers = 8;
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < likers; i++) {
+            users.add(user("liker" + i));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(likers);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<LikeResponse>> results = new ArrayList<>();
+            for (User user : users) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return likeService.toggleLike(post.getId(), user);
+                }));
+            }
+            start.countDown();
+            for (Future<LikeResponse> result : results) {
+                assertThat(result.get().isLiked()).isTrue();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        counters.flush();
+
+        assertThat(storedLikes()).isEqualTo(likers);
+        assertThat(ownerNotification()).hasValueSatisfying(n -> assertThat(n.getActorCount()).isEqualTo(likers));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM notifications WHERE reference_id = ?",
+                Long.class, post.getId())).isEqualTo(1);
+    }
+
+    @Test
+    void unknownPostIsNotFound() {
+        User liker = user("liker");
+
+        assertThatThrownBy(() -> likeService.toggleLike(UUID.randomUUID(), liker))
+                .isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> likeService.like(UUID.randomUUID(), liker))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    private Optional<Notification> ownerNotification() {
+        return notificationRepository.findFirstByUserAndTypeAndReferenceIdOrderByUpdatedAtDesc(
+                owner, Notification.NotificationType.LIKE, post.getId());
+    }
+
+    private long storedLikes() {
+        return jdbcTemplate.queryForObject("SELECT like_count FROM posts WHERE id = ?", Long.class, post.getId());
+    }
+
+    private User user(String prefix) {
+        return userRepository.save(User.builder()
+                .username(uniqueName(prefix))
+                .email(UUID.randomUUID() + "@example.com")
+                .password("password")
+                .build());
+    }
+}
@@ -0,0 +1,207 @@
+package com.madagha.backend.media.controller;
+
+import com.madagha.backend.media.service.MediaFile;
+import com.madagha.backend.media.service.MediaSegmentStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class MediaFileWriterTest {
+
+    private static final int SIZE = 100;
+    private static final String ETAG = "\"abc123\"";
+    private static final long LAST_MODIFIED = 1_700_000_000_000L;
+
+    @TempDir
+    Path tempDir;
+
+    private MediaFileWriter writer;
+    private MediaFile file;
+    private byte[] content;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        writer = new MediaFileWriter(mock(MediaSegmentStore.class));
+        ReflectionTestUtils.setField(writer, "maxRanges", 16);
+
+        content = new byte[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            content[i] = (byte) i;
+        }
+        Path path = tempDir.resolve("media.bin");
+        Files.write(path, content);
+        file = MediaFile.builder()
+                .key("media.bin")
+                .path(path)
+                .contentType("application/octet-stream")
+                .size(SIZE)
+                .etag(ETAG)
+                .lastModified(LAST_MODIFIED)
+                .build();
+    }
+
+    @Test
+    void wholeFileWithoutRange() throws Exception {
+        MockHttpServletResponse response = write(request());
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsByteArray()).isEqualTo(content);
+        assertThat(response.getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(ETAG);
+    }
+
+    @Test
+    void matchingEtagIsNotModified() throws Exception {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, ETAG);
+
+        MockHttpServletResponse response = write(request);
+
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void singleRange() throws Exception {
+        MockHttpServletResponse response = write(range("bytes=10-19"));
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 10-19/100");
+        assertThat(response.getContentLengthLong()).isEqualTo(10);
+        assertThat(response.getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(content, 10, 20));
+    }
+
+    @Test
+    void rangeEndIsClampedToTheFile() throws Exception {
+        MockHttpServletResponse response = write(range("bytes=90-500"));
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 90-99/100");
+    }
+
+    @Test
+    void suffixRange() throws Exception {
+        MockHttpServletResponse response = write(range("bytes=-5"));
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 95-99/100");
+        assertThat(response.getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(content, 95, 100));
+    }
+
+    @Test
+    void openEndedRange() throws Exception {
+        MockHttpServletResponse response = write(range("bytes=95-"));
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 95-99/100");
+        assertThat(response.getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(content, 95, 100));
+    }
+
+    @Test
+    void rangePastTheEndIsNotSatisfiable() throws Exception {
+        MockHttpServletResponse response = write(range("bytes=100-200"));
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */100");
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void malformedRangeIsIgnored() throws Exception {
+        for (String header : new String[]{"bytes=abc", "bytes=20-10", "items=0-5", "bytes=5"}) {
+            MockHttpServletResponse response = write(range(header));
+
+            assertThat(response.getStatus()).as(header).isEqualTo(200);
+            assertThat(response.getContentAsByteArray()).as(header).isEqualTo(content);
+        }
+    }
+
+    @Test
+    void multipleRangesAreSentAsMultipart() throws Exception {
+        MockHttpServletResponse response = write(range("bytes=0-4, 10-14"));
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentType()).startsWith("multipart/byteranges; boundary=");
+        String boundary = response.getContentType().substring(response.getContentType().indexOf('=') + 1);
+        String body = response.getContentAsString(StandardCharsets.ISO_8859_1);
+        assertThat(body)
+                .contains("Content-Range: bytes 0-4/100")
+                .contains("Content-Range: bytes 10-14/100")
+                .contains(new String(Arrays.copyOfRange(content, 10, 15), StandardCharsets.ISO_8859_1))
+                .endsWith("\r\n--" + boundary + "--\r\n");
+        assertThat(response.getContentLengthLong()).isEqualTo(response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void staleIfRangeGetsTheWholeFile() throws Exception {
+        MockHttpServletRequest request = range("bytes=10-19");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"stale\"");
+
+        MockHttpServletResponse response = write(request);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsByteArray()).isEqualTo(content);
+    }
+
+    @Test
+    void currentIfRangeGetsTheRange() throws Exception {
+        MockHttpServletRequest request = range("bytes=10-19");
+        request.addHeader(HttpHeaders.IF_RANGE, ETAG);
+
+        assertThat(write(request).getStatus()).isEqualTo(206);
+    }
+
+    @Test
+    void tooManyRangesAreIgnored() throws Exception {
+        String header = "bytes=" + IntStream.range(0, 17)
+                .mapToObj(i -> i * 5 + "-" + (i * 5 + 1))
+                .collect(Collectors.joining(","));
+
+        MockHttpServletResponse response = write(range(header));
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsByteArray()).isEqualTo(content);
+    }
+
+    @Test
+    void headSendsHeadersOnly() throws Exception {
+        MockHttpServletRequest request = range("bytes=10-19");
+        request.setMethod("HEAD");
+
+        MockHttpServletResponse response = write(request);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentLengthLong()).isEqualTo(10);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    private MockHttpServletResponse write(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        writer.write(file, "media.bin", request, response);
+        return response;
+    }
+
+    private static MockHttpServletRequest range(String header) {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.RANGE, header);
+        return request;
+    }
+
+    private static MockHttpServletRequest request() {
+        return new MockHttpServletRequest("GET", "/api/media/s/token/media.bin");
+    }
+}
@@ -0,0 +1,125 @@
+package com.madagha.backend.media.service;
+
+import com.madagha.backend.PostgresIntegrationTest;
+import com.madagha.backend.media.entity.MediaBlob;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MediaBlobStoreTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private MediaBlobStore blobStore;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void sameContentIsStoredOnce() throws Exception {
+        byte[] content = randomContent();
+        String checksum = sha256(content);
+        Path first = tempFile(content);
+        Path second = tempFile(content);
+
+        MediaBlob stored = blobStore.acquire(first, checksum, content.length, "image/jpeg");
+        MediaBlob shared = blobStore.acquire(second, checksum, content.length, "image/jpeg");
+
+        assertThat(stored.getRefCount()).isEqualTo(1);
+        assertThat(shared.getRefCount()).isEqualTo(2);
+        assertThat(shared.getFilePath()).isEqualTo(blobStore.blobPath(checksum));
+        assertThat(Files.readAllBytes(Paths.get(shared.getFilePath()))).isEqualTo(content);
+        assertThat(first).doesNotExist();
+        assertThat(second).doesNotExist();
+        assertThat(refCount(checksum)).isEqualTo(2);
+    }
+
+    @Test
+    void unreferencedBlobIsCollected() throws Exception {
+        byte[] content = randomContent();
+        String checksum = sha256(content);
+        blobStore.acquire(tempFile(content), checksum, content.length, "image/jpeg");
+        blobStore.acquire(tempFile(content), checksum, content.length, "image/jpeg");
+
+        blobStore.release(Map.of(checksum, 2L));
+
+        assertThat(refCount(checksum)).isZero();
+        assertThat(blobStore.collect(List.of(checksum))).isEqualTo(1);
+        assertThat(exists(checksum)).isFalse();
+        assertThat(Paths.get(blobStore.blobPath(checksum))).doesNotExist();
+    }
+
+    @Test
+    void referencedBlobIsKept() throws Exception {
+        byte[] content = randomContent();
+        String checksum = sha256(content);
+        blobStore.acquire(tempFile(content), checksum, content.length, "image/jpeg");
+        blobStore.acquire(tempFile(content), checksum, content.length, "image/jpeg");
+
+        blobStore.release(Map.of(checksum, 1L));
+
+        assertThat(blobStore.collect(List.of(checksum))).isZero();
+        assertThat(refCount(checksum)).isEqualTo(1);
+        assertThat(Paths.get(blobStore.blobPath(checksum))).exists();
+    }
+
+    @Test
+    void releaseNeverGoesBelowZero() throws Exception {
+        byte[] content = randomContent();
+        String checksum = sha256(content);
+        blobStore.acquire(tempFile(content), checksum, content.length, "image/jpeg");
+
+        blobStore.release(Map.of(checksum, 5L));
+
+        assertThat(refCount(checksum)).isZero();
+    }
+
+    @Test
+    void collectedContentCanBeStoredAgain() throws Exception {
+        byte[] content = randomContent();
+        String checksum = sha256(content);
+        blobStore.acquire(tempFile(content), checksum, content.length, "image/jpeg");
+        blobStore.release(Map.of(checksum, 1L));
+        blobStore.collect(List.of(checksum));
+
+        MediaBlob again = blobStore.acquire(tempFile(content), checksum, content.length, "image/jpeg");
+
+        assertThat(again.getRefCount()).isEqualTo(1);
+        assertThat(Files.readAllBytes(Paths.get(again.getFilePath()))).isEqualTo(content);
+    }
+
+    private Path tempFile(byte[] content) throws Exception {
+        Path file = blobStore.newTempFile();
+        Files.write(file, content);
+        return file;
+    }
+
+    private long refCount(String checksum) {
+        return jdbcTemplate.queryForObject("SELECT ref_count FROM media_blobs WHERE checksum = ?", Long.class,
+                checksum);
+    }
+
+    private boolean exists(String checksum) {
+        return !jdbcTemplate.queryForList("SELECT checksum FROM media_blobs WHERE checksum = ?", String.class,
+                checksum).isEmpty();
+    }
+
+    // Unique per test, since blobs are shared across the whole database
+    private static byte[] randomContent() {
+        return ("blob " + UUID.randomUUID()).getBytes();
+    }
+
+    private static String sha256(byte[] content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+}
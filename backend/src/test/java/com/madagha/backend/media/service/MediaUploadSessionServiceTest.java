@@ -0,0 +1,163 @@
+package com.madagha.backend.media.service;
+
+import com.madagha.backend.PostgresIntegrationTest;
+import com.madagha.backend.common.exception.ConflictException;
+import com.madagha.backend.common.exception.ResourceNotFoundException;
+import com.madagha.backend.media.dto.MediaUploadRequest;
+import com.madagha.backend.media.dto.MediaUploadStatus;
+import com.madagha.backend.media.entity.Media;
+import com.madagha.backend.media.repository.MediaRepository;
+import com.madagha.backend.media.repository.MediaUploadSessionRepository;
+import com.madagha.backend.post.entity.Post;
+import com.madagha.backend.post.repository.PostRepository;
+import com.madagha.backend.user.entity.User;
+import com.madagha.backend.user.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MediaUploadSessionServiceTest extends PostgresIntegrationTest {
+
+    private static final int SIZE = 1000;
+
+    @Autowired
+    private MediaUploadSessionService uploads;
+
+    @Autowired
+    private MediaUploadSessionRepository sessionRepository;
+
+    @Autowired
+    private MediaRepository mediaRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    private User owner;
+    private Post post;
+    private byte[] content;
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.save(User.builder()
+                .username(uniqueName("uploader"))
+                .email(UUID.randomUUID() + "@example.com")
+                .password("password")
+                .build());
+        post = postRepository.save(Post.builder()
+                .title("Uploads")
+                .content("A post with media")
+                .owner(owner)
+                .build());
+
+        content = new byte[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            content[i] = (byte) (i * 31);
+        }
+        content[0] = (byte) 0xFF;
+        content[1] = (byte) 0xD8;
+        content[2] = (byte) 0xFF;
+        // Unique per test, since blobs are shared across the whole database
+        byte[] salt = UUID.randomUUID().toString().getBytes();
+        System.arraycopy(salt, 0, content, 16, salt.length);
+    }
+
+    @Test
+    void chunksAssembleIntoOneStoredFile() throws Exception {
+        UUID id = start().getUploadId();
+
+        assertThat(chunk(id, 0, 400).getOffset()).isEqualTo(400);
+        // A retried chunk overlapping what was already received is accepted
+        assertThat(chunk(id, 300, 700).getOffset()).isEqualTo(700);
+        assertThat(chunk(id, 700, SIZE).getOffset()).isEqualTo(SIZE);
+        String tempPath = sessionRepository.findById(id).orElseThrow().getTempPath();
+
+        String name = uploads.completeUpload(id, owner.getUsername());
+
+        Media media = mediaRepository.findByName(name).orElseThrow();
+        assertThat(media.getChecksum()).isEqualTo(sha256(content));
+        assertThat(media.getFileSize()).isEqualTo(SIZE);
+        assertThat(sessionRepository.findById(id)).isEmpty();
+        assertThat(Paths.get(tempPath)).doesNotExist();
+    }
+
+    @Test
+    void chunkPastTheReceivedBytesConflicts() throws Exception {
+        UUID id = start().getUploadId();
+        chunk(id, 0, 100);
+
+        assertThatThrownBy(() -> chunk(id, 200, 300)).isInstanceOf(ConflictException.class);
+        assertThat(uploads.getUpload(id, owner.getUsername()).getOffset()).isEqualTo(100);
+    }
+
+    @Test
+    void completingEarlyConflicts() throws Exception {
+        UUID id = start().getUploadId();
+        chunk(id, 0, 500);
+
+        assertThatThrownBy(() -> uploads.completeUpload(id, owner.getUsername()))
+                .isInstanceOf(ConflictException.class);
+        assertThat(sessionRepository.findById(id)).isPresent();
+    }
+
+    @Test
+    void secondCompletionIsNotFound() throws Exception {
+        UUID id = start().getUploadId();
+        chunk(id, 0, SIZE);
+        uploads.completeUpload(id, owner.getUsername());
+
+        assertThatThrownBy(() -> uploads.completeUpload(id, owner.getUsername()))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void badSignatureDiscardsTheSession() throws Exception {
+        UUID id = start().getUploadId();
+        String tempPath = sessionRepository.findById(id).orElseThrow().getTempPath();
+        content[0] = 0x00;
+
+        assertThatThrownBy(() -> chunk(id, 0, SIZE)).isInstanceOf(RuntimeException.class);
+
+        assertThat(sessionRepository.findById(id)).isEmpty();
+        assertThat(Paths.get(tempPath)).doesNotExist();
+    }
+
+    @Test
+    void otherUsersCannotSeeTheSession() throws Exception {
+        UUID id = start().getUploadId();
+        User stranger = userRepository.save(User.builder()
+                .username(uniqueName("stranger"))
+                .email(UUID.randomUUID() + "@example.com")
+                .password("password")
+                .build());
+
+        assertThatThrownBy(() -> uploads.getUpload(id, stranger.getUsername()))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    private MediaUploadStatus start() throws Exception {
+        return uploads.startUpload(new MediaUploadRequest(post.getId(), "clip.jpg", "image/jpeg", SIZE),
+                owner.getUsername());
+    }
+
+    private MediaUploadStatus chunk(UUID id, int from, int to) throws Exception {
+        return uploads.writeChunk(id, from, new ByteArrayInputStream(Arrays.copyOfRange(content, from, to)),
+                owner.getUsername());
+    }
+
+    private static String sha256(byte[] content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+}
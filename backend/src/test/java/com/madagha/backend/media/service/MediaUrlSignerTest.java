@@ -0,0 +1,123 @@
+package com.madagha.backend.media.service;
+
+import com.madagha.backend.common.exception.ResourceNotFoundException;
+import com.madagha.backend.media.entity.Media;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MediaUrlSignerTest {
+
+    private static final String SECRET = "test-secret-that-is-long-enough-for-hmac";
+    private static final String CHECKSUM = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
+    private MediaBlobStore blobStore;
+    private MediaUrlSigner signer;
+
+    @BeforeEach
+    void setUp() {
+        blobStore = mock(MediaBlobStore.class);
+        when(blobStore.blobPath(anyString())).thenAnswer(call -> "uploads/blobs/" + call.getArgument(0));
+        signer = new MediaUrlSigner(blobStore, SECRET, 86_400_000);
+    }
+
+    @Test
+    void deduplicatedMediaRoundTripsWithoutItsPath() {
+        Media media = media(CHECKSUM, "uploads/blobs/" + CHECKSUM);
+
+        MediaUrlSigner.SignedMedia signed = signer.verify(signer.sign(media));
+
+        assertThat(signed.getName()).isEqualTo(media.getName());
+        assertThat(signed.getChecksum()).isEqualTo(CHECKSUM);
+        assertThat(signed.getFilePath()).isEqualTo(media.getFilePath());
+        assertThat(signed.getContentType()).isEqualTo("image/jpeg");
+        assertThat(signed.getSize()).isEqualTo(2048);
+        assertThat(signed.getCreatedAt())
+                .isEqualTo(media.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    @Test
+    void legacyMediaRoundTripsWithItsPath() {
+        Media media = media(null, "uploads/legacy-photo.jpg");
+
+        MediaUrlSigner.SignedMedia signed = signer.verify(signer.sign(media));
+
+        assertThat(signed.getChecksum()).isNull();
+        assertThat(signed.getFilePath()).isEqualTo("uploads/legacy-photo.jpg");
+    }
+
+    @Test
+    void missingSizeIsReportedAsUnknown() {
+        Media media = media(null, "uploads/legacy-photo.jpg");
+        media.setFileSize(null);
+
+        assertThat(signer.verify(signer.sign(media)).getSize()).isEqualTo(-1);
+    }
+
+    @Test
+    void tamperedTokenIsNotFound() {
+        byte[] token = Base64.getUrlDecoder().decode(signer.sign(media(CHECKSUM, "uploads/blobs/" + CHECKSUM)));
+        token[4] ^= 1;
+        String tampered = Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+
+        assertThatThrownBy(() -> signer.verify(tampered)).isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> signer.verify("%%%")).isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> signer.verify("AAAA")).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void tokenFromAnotherSecretIsNotFound() {
+        MediaUrlSigner other = new MediaUrlSigner(blobStore, SECRET + "-other", 86_400_000);
+        String token = other.sign(media(CHECKSUM, "uploads/blobs/" + CHECKSUM));
+
+        assertThatThrownBy(() -> signer.verify(token)).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void tokensAreStableWithinAWindow() {
+        Media media = media(CHECKSUM, "uploads/blobs/" + CHECKSUM);
+
+        assertThat(signer.sign(media)).isEqualTo(signer.sign(media));
+    }
+
+    @Test
+    void zeroTtlSignsTokensWithoutExpiry() {
+        MediaUrlSigner forever = new MediaUrlSigner(blobStore, SECRET, 0);
+        Media media = media(CHECKSUM, "uploads/blobs/" + CHECKSUM);
+
+        String token = forever.sign(media);
+
+        assertThat(Base64.getUrlDecoder().decode(token).length)
+                .isEqualTo(Base64.getUrlDecoder().decode(signer.sign(media)).length - Long.BYTES);
+        assertThat(forever.verify(token).getChecksum()).isEqualTo(CHECKSUM);
+    }
+
+    @Test
+    void urlEndsWithTheMediaName() {
+        Media media = media(CHECKSUM, "uploads/blobs/" + CHECKSUM);
+
+        assertThat(signer.url(media))
+                .startsWith(MediaUrlSigner.PATH)
+                .endsWith("/" + media.getName());
+    }
+
+    private static Media media(String checksum, String filePath) {
+        return Media.builder()
+                .name("photo.jpg")
+                .filePath(filePath)
+                .fileType("image/jpeg")
+                .fileSize(2048L)
+                .checksum(checksum)
+                .createdAt(LocalDateTime.of(2024, 5, 1, 10, 0))
+                .build();
+    }
+}
@@ -0,0 +1,135 @@
+package com.madagha.backend.notification.service;
+
+import com.madagha.backend.PostgresIntegrationTest;
+import com.madagha.backend.notification.entity.Notification;
+import com.madagha.backend.notification.repository.NotificationRepository;
+import com.madagha.backend.user.entity.User;
+import com.madagha.backend.user.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NotificationServiceTest extends PostgresIntegrationTest {
+
+    private static final Notification.NotificationType COMMENT = Notification.NotificationType.COMMENT;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User recipient;
+    private UUID postId;
+
+    @BeforeEach
+    void setUp() {
+        recipient = user("author");
+        postId = UUID.randomUUID();
+    }
+
+    @Test
+    void activityFoldsIntoOneGroup() {
+        User alice = user("alice");
+        User bob = user("bob");
+        User carol = user("carol");
+
+        notificationService.recordActivity(recipient, COMMENT, postId, alice, "Hello");
+        notificationService.recordActivity(recipient, COMMENT, postId, bob, "Hello");
+        notificationService.recordActivity(recipient, COMMENT, postId, carol, "Hello");
+
+        Notification group = latest().orElseThrow();
+        assertThat(group.getActorCount()).isEqualTo(3);
+        assertThat(group.getMessage()).isEqualTo(carol.getUsername() + " and 2 others commented on your post: Hello");
+        assertThat(group.getRecentActorIds()).startsWith(carol.getId().toString());
+        assertThat(notificationService.getUnreadCount(recipient).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void repeatActorIsCountedOnce() {
+        User alice = user("alice");
+        User bob = user("bob");
+
+        notificationService.recordActivity(recipient, COMMENT, postId, alice, "Hello");
+        notificationService.recordActivity(recipient, COMMENT, postId, bob, "Hello");
+        notificationService.recordActivity(recipient, COMMENT, postId, alice, "Hello");
+
+        Notification group = latest().orElseThrow();
+        assertThat(group.getActorCount()).isEqualTo(2);
+        assertThat(group.getRecentActorIds()).isEqualTo(alice.getId() + "," + bob.getId());
+    }
+
+    @Test
+    void retractionTakesTheActorOutAndTheLastOneDeletesTheGroup() {
+        User alice = user("alice");
+        User bob = user("bob");
+        notificationService.recordActivity(recipient, COMMENT, postId, alice, "Hello");
+        notificationService.recordActivity(recipient, COMMENT, postId, bob, "Hello");
+
+        notificationService.retractActivity(recipient, COMMENT, postId, bob, "Hello");
+
+        Notification group = latest().orElseThrow();
+        assertThat(group.getActorCount()).isEqualTo(1);
+        assertThat(group.getMessage()).isEqualTo(alice.getUsername() + " commented on your post: Hello");
+
+        notificationService.retractActivity(recipient, COMMENT, postId, alice, "Hello");
+
+        assertThat(latest()).isEmpty();
+        assertThat(notificationService.getUnreadCount(recipient).getCount()).isZero();
+    }
+
+    @Test
+    void retractingAnUnknownActorIsANoOp() {
+        User alice = user("alice");
+        notificationService.recordActivity(recipient, COMMENT, postId, alice, "Hello");
+
+        notificationService.retractActivity(recipient, COMMENT, postId, user("stranger"), "Hello");
+        notificationService.retractActivity(recipient, COMMENT, UUID.randomUUID(), alice, "Hello");
+
+        assertThat(latest()).hasValueSatisfying(group -> assertThat(group.getActorCount()).isEqualTo(1));
+    }
+
+    @Test
+    void markAllAsReadMovesTheWatermark() {
+        User alice = user("alice");
+        User bob = user("bob");
+        notificationService.recordActivity(recipient, COMMENT, postId, alice, "Hello");
+        notificationService.recordActivity(recipient, COMMENT, UUID.randomUUID(), alice, "Other");
+        assertThat(notificationService.getUnreadCount(recipient).getCount()).isEqualTo(2);
+        long versionBefore = notificationService.getUnreadCount(recipient).getVersion();
+
+        notificationService.markAllAsRead(recipient);
+
+        UnreadCountCache.UnreadCount afterRead = notificationService.getUnreadCount(recipient);
+        assertThat(afterRead.getCount()).isZero();
+        assertThat(afterRead.getVersion()).isNotEqualTo(versionBefore);
+
+        // Activity after the watermark opens a new unread group instead of reviving the read one
+        User reloaded = userRepository.findById(recipient.getId()).orElseThrow();
+        notificationService.recordActivity(reloaded, COMMENT, postId, bob, "Hello");
+
+        assertThat(notificationService.getUnreadCount(reloaded).getCount()).isEqualTo(1);
+        assertThat(latest()).hasValueSatisfying(group -> assertThat(group.getActorCount()).isEqualTo(1));
+    }
+
+    private Optional<Notification> latest() {
+        return notificationRepository.findFirstByUserAndTypeAndReferenceIdOrderByUpdatedAtDesc(
+                recipient, COMMENT, postId);
+    }
+
+    private User user(String prefix) {
+        return userRepository.save(User.builder()
+                .username(uniqueName(prefix))
+                .email(UUID.randomUUID() + "@example.com")
+                .password("password")
+                .build());
+    }
+}
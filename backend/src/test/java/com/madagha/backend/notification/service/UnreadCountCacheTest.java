@@ -0,0 +1,149 @@
+package com.madagha.backend.notification.service;
+
+import com.madagha.backend.notification.repository.NotificationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UnreadCountCacheTest {
+
+    private final UUID userId = UUID.randomUUID();
+
+    private NotificationRepository repository;
+    private UnreadCountCache cache;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(NotificationRepository.class);
+        cache = new UnreadCountCache(repository, 100, 300_000);
+    }
+
+    @Test
+    void loadsOnceAndServesFromMemory() {
+        when(repository.countUnread(userId)).thenReturn(3L);
+
+        UnreadCountCache.UnreadCount first = cache.get(userId);
+        UnreadCountCache.UnreadCount second = cache.get(userId);
+
+        assertThat(first.getCount()).isEqualTo(3);
+        assertThat(second.getCount()).isEqualTo(3);
+        assertThat(second.getVersion()).isEqualTo(first.getVersion());
+        verify(repository, times(1)).countUnread(userId);
+    }
+
+    @Test
+    void deltasMoveTheCountAndTheVersion() {
+        when(repository.countUnread(userId)).thenReturn(3L);
+        UnreadCountCache.UnreadCount loaded = cache.get(userId);
+
+        cache.increment(userId);
+        UnreadCountCache.UnreadCount incremented = cache.get(userId);
+        cache.decrement(userId);
+        cache.decrement(userId);
+        UnreadCountCache.UnreadCount decremented = cache.get(userId);
+
+        assertThat(incremented.getCount()).isEqualTo(4);
+        assertThat(incremented.getVersion()).isGreaterThan(loaded.getVersion());
+        assertThat(decremented.getCount()).isEqualTo(2);
+        assertThat(decremented.getVersion()).isGreaterThan(incremented.getVersion());
+        verify(repository, times(1)).countUnread(userId);
+    }
+
+    @Test
+    void countNeverGoesNegative() {
+        when(repository.countUnread(userId)).thenReturn(0L);
+        cache.get(userId);
+
+        cache.decrement(userId);
+
+        assertThat(cache.get(userId).getCount()).isZero();
+    }
+
+    @Test
+    void deltasForUncachedUsersAreDropped() {
+        cache.increment(userId);
+        when(repository.countUnread(userId)).thenReturn(5L);
+
+        assertThat(cache.get(userId).getCount()).isEqualTo(5);
+    }
+
+    @Test
+    void loadRacingADeltaIsNotCached() {
+        // The notification commits while the count query is running, so the loaded value may miss it
+        when(repository.countUnread(userId))
+                .thenAnswer(call -> {
+                    cache.increment(userId);
+                    return 2L;
+                })
+                .thenReturn(3L);
+
+        assertThat(cache.get(userId).getCount()).isEqualTo(2);
+        assertThat(cache.get(userId).getCount()).isEqualTo(3);
+        assertThat(cache.get(userId).getCount()).isEqualTo(3);
+        verify(repository, times(2)).countUnread(userId);
+    }
+
+    @Test
+    void reloadKeepsTheVersionWhenTheCountIsUnchanged() {
+        UnreadCountCache expiring = new UnreadCountCache(repository, 100, -1);
+        when(repository.countUnread(userId)).thenReturn(4L, 4L, 5L);
+
+        UnreadCountCache.UnreadCount first = expiring.get(userId);
+        UnreadCountCache.UnreadCount same = expiring.get(userId);
+        UnreadCountCache.UnreadCount changed = expiring.get(userId);
+
+        assertThat(same.getVersion()).isEqualTo(first.getVersion());
+        assertThat(changed.getCount()).isEqualTo(5);
+        assertThat(changed.getVersion()).isNotEqualTo(first.getVersion());
+        verify(repository, times(3)).countUnread(userId);
+    }
+
+    @Test
+    void resetClearsTheCountWithANewVersion() {
+        when(repository.countUnread(userId)).thenReturn(7L);
+        UnreadCountCache.UnreadCount loaded = cache.get(userId);
+
+        cache.reset(userId);
+        UnreadCountCache.UnreadCount reset = cache.get(userId);
+
+        assertThat(reset.getCount()).isZero();
+        assertThat(reset.getVersion()).isGreaterThan(loaded.getVersion());
+    }
+
+    @Test
+    void evictedUserIsReloaded() {
+        when(repository.countUnread(userId)).thenReturn(1L, 6L);
+        cache.get(userId);
+
+        cache.evict(userId);
+
+        assertThat(cache.get(userId).getCount()).isEqualTo(6);
+    }
+
+    @Test
+    void staysWithinMaxEntries() {
+        UnreadCountCache small = new UnreadCountCache(repository, 2, 300_000);
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+
+        small.get(first);
+        small.get(second);
+        small.get(third);
+        small.get(first);
+        small.get(second);
+        small.get(third);
+
+        // Three users through a two-entry cache: at least one of them had to be reloaded
+        verify(repository, atLeast(4)).countUnread(any());
+    }
+}
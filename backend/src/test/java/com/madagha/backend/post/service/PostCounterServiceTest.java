@@ -0,0 +1,144 @@
+package com.madagha.backend.post.service;
+
+import com.madagha.backend.PostgresIntegrationTest;
+import com.madagha.backend.post.entity.Post;
+import com.madagha.backend.post.repository.PostRepository;
+import com.madagha.backend.user.entity.User;
+import com.madagha.backend.user.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PostCounterServiceTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private PostCounterService counters;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Post post;
+
+    @BeforeEach
+    void setUp() {
+        User owner = userRepository.save(User.builder()
+                .username(uniqueName("owner"))
+                .email(UUID.randomUUID() + "@example.com")
+                .password("password")
+                .build());
+        post = postRepository.save(Post.builder()
+                .title("Counted")
+                .content("Counted post")
+                .owner(owner)
+                .build());
+    }
+
+    @Test
+    void deltasAreBufferedUntilFlushed() {
+        counters.recordLike(post.getId(), 1);
+        counters.recordLike(post.getId(), 1);
+        counters.recordComment(post.getId(), 1);
+
+        assertThat(storedLikes()).isZero();
+        assertThat(counters.getLikeCount(post.getId(), storedLikes())).isEqualTo(2);
+
+        counters.flush();
+
+        assertThat(storedLikes()).isEqualTo(2);
+        assertThat(storedComments()).isEqualTo(1);
+        assertThat(counters.getLikeCount(post.getId(), storedLikes())).isEqualTo(2);
+    }
+
+    @Test
+    void deltasOfARolledBackTransactionAreDropped() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            counters.recordLike(post.getId(), 1);
+            status.setRollbackOnly();
+        });
+
+        counters.flush();
+
+        assertThat(storedLikes()).isZero();
+    }
+
+    @Test
+    void reconcileRepairsDrift() {
+        insertLikes(3);
+
+        counters.reconcile();
+
+        assertThat(storedLikes()).isEqualTo(3);
+    }
+
+    @Test
+    void reconcileDoesNotCountAPendingDeltaTwice() {
+        // The row is committed and its delta is buffered but not yet flushed
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            insertLikes(1);
+            counters.recordLike(post.getId(), 1);
+        });
+
+        counters.reconcile();
+        counters.flush();
+
+        assertThat(storedLikes()).isEqualTo(1);
+    }
+
+    @Test
+    void reconcileSkipsPostsWithDeltasInFlight() {
+        // Reconciliation runs after the like row commits but before its delta reaches the buffer
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            insertLikes(1);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    counters.reconcile();
+                }
+            });
+            counters.recordLike(post.getId(), 1);
+        });
+
+        counters.flush();
+
+        assertThat(storedLikes()).isEqualTo(1);
+    }
+
+    private void insertLikes(int count) {
+        for (int i = 0; i < count; i++) {
+            User liker = userRepository.save(User.builder()
+                    .username(uniqueName("liker"))
+                    .email(UUID.randomUUID() + "@example.com")
+                    .password("password")
+                    .build());
+            jdbcTemplate.update("INSERT INTO likes (id, user_id, post_id, created_at) "
+                    + "VALUES (gen_random_uuid(), ?, ?, now())", liker.getId(), post.getId());
+        }
+    }
+
+    private long storedLikes() {
+        return jdbcTemplate.queryForObject("SELECT like_count FROM posts WHERE id = ?", Long.class, post.getId());
+    }
+
+    private long storedComments() {
+        return jdbcTemplate.queryForObject("SELECT comment_count FROM posts WHERE id = ?", Long.class,
+                post.getId());
+    }
+}
@@ -0,0 +1,138 @@
+package com.madagha.backend.post.service;
+
+import com.madagha.backend.like.entity.Like;
+import com.madagha.backend.media.entity.Media;
+import com.madagha.backend.media.service.MediaUrlSigner;
+import com.madagha.backend.post.dto.PostDto;
+import com.madagha.backend.post.entity.Post;
+import com.madagha.backend.post.repository.PostRepository;
+import com.madagha.backend.user.entity.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import(PostDtoHydrator.class)
+class PostDtoHydratorTest {
+
+    private static final int PAGE_SIZE = 20;
+
+    // owners, media, and the viewer's likes
+    private static final long HYDRATE_STATEMENTS = 3;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private PostDtoHydrator hydrator;
+
+    @MockBean
+    private PostCounterService postCounterService;
+
+    @MockBean
+    private MediaUrlSigner mediaUrlSigner;
+
+    private Statistics statistics;
+    private User viewer;
+    private List<UUID> postIds;
+
+    @BeforeEach
+    void setUp() {
+        viewer = entityManager.persist(user("viewer"));
+        postIds = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            User owner = entityManager.persist(user("owner" + i));
+            Post post = entityManager.persist(Post.builder()
+                    .title("Post " + i)
+                    .content("Content " + i)
+                    .owner(owner)
+                    .build());
+            for (int m = 0; m < 2; m++) {
+                entityManager.persist(Media.builder()
+                        .name("media-" + i + "-" + m + ".jpg")
+                        .filePath("uploads/media-" + i + "-" + m + ".jpg")
+                        .fileType("image/jpeg")
+                        .fileSize(1024L)
+                        .post(post)
+                        .build());
+            }
+            if (i % 2 == 0) {
+                entityManager.persist(Like.builder().user(viewer).post(post).build());
+            }
+            postIds.add(post.getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void hydratesOnePostWithFixedStatementCount() {
+        List<Post> posts = postRepository.findAllById(postIds.subList(0, 1));
+        statistics.clear();
+
+        List<PostDto> dtos = hydrator.hydrate(posts, viewer.getId());
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(HYDRATE_STATEMENTS);
+        assertThat(dtos).hasSize(1);
+        assertThat(dtos.get(0).getMediaUrls()).hasSize(2);
+        assertThat(dtos.get(0).isLikedByMe()).isTrue();
+    }
+
+    @Test
+    void hydratesAPageWithTheSameStatementCount() {
+        List<Post> posts = postRepository.findAllById(postIds);
+        statistics.clear();
+
+        List<PostDto> dtos = hydrator.hydrate(posts, viewer.getId());
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(HYDRATE_STATEMENTS);
+        assertThat(dtos).hasSize(PAGE_SIZE);
+        assertThat(dtos).allSatisfy(dto -> {
+            assertThat(dto.getOwner()).isNotNull();
+            assertThat(dto.getMediaUrls()).hasSize(2);
+        });
+        assertThat(dtos).filteredOn(PostDto::isLikedByMe).hasSize(PAGE_SIZE / 2);
+    }
+
+    @Test
+    void skipsTheLikeLookupForAnonymousViewers() {
+        List<Post> posts = postRepository.findAllById(postIds);
+        statistics.clear();
+
+        hydrator.hydrate(posts, null);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(HYDRATE_STATEMENTS - 1);
+    }
+
+    private static User user(String username) {
+        return User.builder()
+                .username(username)
+                .email(username + "@example.com")
+                .password("password")
+                .build();
+    }
+}
@@ -0,0 +1,151 @@
+package com.madagha.backend.subscription.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SocialGraphIndexTest {
+
+    private static final String USERS = "SELECT id FROM users";
+    private static final String SUBSCRIPTIONS = "SELECT subscriber_id, subscribed_to_id FROM subscriptions";
+
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+    private final UUID carol = UUID.randomUUID();
+    private final UUID dave = UUID.randomUUID();
+
+    private JdbcTemplate jdbcTemplate;
+    private SocialGraphIndex index;
+    private List<UUID[]> subscriptions;
+    // Runs while the rebuild is reading the subscriptions table
+    private Runnable duringRead = () -> { };
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        index = new SocialGraphIndex(jdbcTemplate);
+        subscriptions = new ArrayList<>();
+
+        doAnswer(call -> {
+            RowCallbackHandler handler = call.getArgument(1);
+            for (UUID user : List.of(alice, bob, carol, dave)) {
+                handler.processRow(row(user, null));
+            }
+            return null;
+        }).when(jdbcTemplate).query(eq(USERS), any(RowCallbackHandler.class));
+        doAnswer(call -> {
+            RowCallbackHandler handler = call.getArgument(1);
+            duringRead.run();
+            for (UUID[] subscription : subscriptions) {
+                handler.processRow(row(subscription[0], subscription[1]));
+            }
+            return null;
+        }).when(jdbcTemplate).query(eq(SUBSCRIPTIONS), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void isNotReadyUntilBuilt() {
+        assertThat(index.isReady()).isFalse();
+
+        index.rebuild();
+
+        assertThat(index.isReady()).isTrue();
+    }
+
+    @Test
+    void buildsFollowingAndFollowerRows() {
+        subscriptions.add(new UUID[]{alice, bob});
+        subscriptions.add(new UUID[]{carol, bob});
+        subscriptions.add(new UUID[]{bob, alice});
+
+        index.rebuild();
+
+        assertThat(index.isFollowing(alice, bob)).isTrue();
+        assertThat(index.isFollowing(bob, carol)).isFalse();
+        assertThat(index.getFollowerCount(bob)).isEqualTo(2);
+        assertThat(index.getFollowingCount(bob)).isEqualTo(1);
+        assertThat(index.getFollowerIds(bob)).containsExactlyInAnyOrder(alice, carol);
+        assertThat(index.contains(dave)).isTrue();
+    }
+
+    @Test
+    void writesDuringARebuildAreReplayedOnTheFreshGraph() {
+        subscriptions.add(new UUID[]{alice, bob});
+        subscriptions.add(new UUID[]{carol, bob});
+        UUID erin = UUID.randomUUID();
+        duringRead = () -> {
+            // Committed after the table scan started, so the scan does not see them
+            index.follow(dave, alice);
+            index.unfollow(carol, bob);
+            index.addUser(erin);
+            index.removeUser(carol);
+        };
+
+        index.rebuild();
+
+        assertThat(index.isFollowing(dave, alice)).isTrue();
+        assertThat(index.isFollowing(carol, bob)).isFalse();
+        assertThat(index.getFollowerIds(bob)).containsExactly(alice);
+        assertThat(index.contains(erin)).isTrue();
+        assertThat(index.contains(carol)).isFalse();
+    }
+
+    @Test
+    void writesAfterTheRebuildApplyDirectly() {
+        index.rebuild();
+
+        index.follow(alice, carol);
+        index.follow(alice, carol);
+        index.follow(bob, carol);
+        index.unfollow(bob, carol);
+
+        assertThat(index.getFollowerIds(carol)).containsExactly(alice);
+        assertThat(index.getFollowingCount(alice)).isEqualTo(1);
+    }
+
+    @Test
+    void removedUserLeavesNoEdgesBehind() {
+        subscriptions.add(new UUID[]{alice, bob});
+        subscriptions.add(new UUID[]{bob, carol});
+        index.rebuild();
+
+        index.removeUser(bob);
+
+        assertThat(index.getFollowingCount(alice)).isZero();
+        assertThat(index.getFollowerCount(carol)).isZero();
+        SocialGraphIndex.GraphView view = index.snapshot();
+        assertThat(view.idOf(bob)).isEqualTo(-1);
+    }
+
+    @Test
+    void snapshotIsUnaffectedByLaterWrites() {
+        index.rebuild();
+        SocialGraphIndex.GraphView view = index.snapshot();
+
+        index.follow(alice, bob);
+
+        assertThat(view.following(view.idOf(alice))).isEmpty();
+        assertThat(index.isFollowing(alice, bob)).isTrue();
+    }
+
+    private static ResultSet row(UUID first, UUID second) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getObject(1, UUID.class)).thenReturn(first);
+        when(rs.getObject(2, UUID.class)).thenReturn(second);
+        return rs;
+    }
+}
@@ -13,8 +13,8 @@ import { MatDividerModule } from '@angular/material/divider';
 import { SharedHeaderComponent } from '../shared-header/shared-header';
 import { AuthService } from '../../services/auth.service';
 import { SubscriptionService } from '../../services/subscription.service';
-import { UserService } from '../../services/user';
 import { User } from '../../models/auth.model';
+import { FollowSuggestion } from '../../models/social.model';
 
 @Component({
   selector: 'app-discover-users',
@@ -41,11 +41,11 @@ export class DiscoverUsers implements OnInit {
   loading = signal(false);
   currentUserId: string | null = null;
   subscriptionStatus = signal<{ [userId: string]: boolean }>({});
+  mutualCounts = signal<{ [userId: string]: number }>({});
 
   constructor(
     private authService: AuthService,
     private subscriptionService: SubscriptionService,
-    private userService: UserService,
     private router: Router,
     private snackBar: MatSnackBar
   ) {}
@@ -63,33 +63,17 @@ export class DiscoverUsers implements OnInit {
 
   loadUsers(): void {
     this.loading.set(true);
-    this.userService.getAllUsers().subscribe({
-      next: (users: User[]) => {
-        const filtered = this.currentUserId
-          ? users.filter((user: User) => user.id !== this.currentUserId)
-          : users; // Exclude current user if available
-        this.users.set(filtered);
-        this.filteredUsers.set([...filtered]);
+    this.subscriptionService.getSuggestions().subscribe({
+      next: (suggestions: FollowSuggestion[]) => {
+        // Suggestions never include the current user or people they already follow
+        const users = suggestions.map((suggestion) => suggestion.user);
+        this.users.set(users);
+        this.filteredUsers.set([...users]);
+        this.mutualCounts.set(
+          Object.fromEntries(suggestions.map((suggestion) => [suggestion.user.id, suggestion.mutualCount]))
+        );
+        this.subscriptionStatus.set(Object.fromEntries(users.map((user) => [user.id, false])));
         this.loading.set(false);
-        // Fetch subscription status for each user, but don't block user list rendering
-        setTimeout(() => {
-          this.users().forEach((user) => {
-            this.subscriptionService.getSubscriptionStatus(user.id).subscribe({
-              next: (status) => {
-                this.subscriptionStatus.update((current) => ({
-                  ...current,
-                  [user.id]: status.subscribed,
-                }));
-              },
-              error: () => {
-                this.subscriptionStatus.update((current) => ({
-                  ...current,
-                  [user.id]: false,
-                }));
-              },
-            });
-          });
-        }, 0);
       },
       error: (error: any) => {
         this.snackBar.open('Failed to load users', 'Close', { duration: 3000 });
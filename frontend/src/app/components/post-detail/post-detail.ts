@@ -112,7 +112,6 @@ export class PostDetailComponent implements OnInit {
     const postId = this.route.snapshot.paramMap.get('id');
     if (postId) {
       this.loadPost(postId);
-      this.checkLikeStatus(postId);
     } else {
       this.router.navigate(['/']);
     }
@@ -132,6 +131,7 @@ export class PostDetailComponent implements OnInit {
           });
         }
         this.post.set(post);
+        this.isLiked.set(post.likedByMe);
         this.loading.set(false);
         this.cdr.detectChanges();
       },
@@ -145,31 +145,16 @@ export class PostDetailComponent implements OnInit {
     });
   }
 
-  checkLikeStatus(postId: string) {
-    this.socialService.getLikeStatus(postId).subscribe({
-      next: (status) => {
-        this.isLiked.set(status.liked);
-      },
-      error: () => {},
-    });
-  }
-
   toggleLike() {
     const post = this.post();
     if (!post) return;
     const wasLiked = this.isLiked();
-    this.socialService.toggleLike(post.id).subscribe({
+    this.socialService.setLike(post.id, !wasLiked).subscribe({
       next: (response) => {
-        // optimistic update: assume toggle succeeded
-        this.isLiked.set(!wasLiked);
+        this.isLiked.set(response.liked);
         const currentPost = this.post();
         if (currentPost) {
-          this.post.set({
-            ...currentPost,
-            likeCount: wasLiked
-              ? Math.max((currentPost.likeCount || 0) - 1, 0)
-              : (currentPost.likeCount || 0) + 1,
-          });
+          this.post.set({ ...currentPost, likeCount: response.likeCount });
         }
         this.cdr.detectChanges();
       },
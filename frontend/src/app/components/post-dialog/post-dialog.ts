@@ -12,6 +12,9 @@ import { MatSnackBar, MatSnackBarModule } from '@angular/material/snack-bar';
 import { PostService } from '../../services/post.service';
 import { Post, CreatePostRequest, UpdatePostRequest } from '../../models/post.model';
 
+// Larger files are sent as a resumable chunked upload
+const MULTIPART_LIMIT = 10 * 1024 * 1024;
+
 @Component({
   selector: 'app-post-dialog',
   standalone: true,
@@ -159,7 +162,11 @@ export class PostDialogComponent implements OnInit {
     const totalFiles = this.selectedFiles.length;
 
     this.selectedFiles.forEach((file) => {
-      this.postService.uploadMedia(postId, file).subscribe({
+      const upload =
+        file.size > MULTIPART_LIMIT
+          ? this.postService.uploadMediaChunked(postId, file)
+          : this.postService.uploadMedia(postId, file);
+      upload.subscribe({
         next: () => {
           uploadedCount++;
           if (uploadedCount === totalFiles) {
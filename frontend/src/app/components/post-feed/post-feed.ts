@@ -37,7 +37,7 @@ export class PostFeedComponent implements OnInit {
   posts = signal<Post[]>([]);
   loading = signal(false);
   page = signal(0);
-  totalPages = signal(0);
+  hasMore = signal(false);
   currentUserId = signal<string | null>(null);
   likedPosts = signal(new Set<string>());
 
@@ -71,11 +71,14 @@ export class PostFeedComponent implements OnInit {
             ) || [],
         }));
         this.posts.set([...this.posts(), ...posts]);
-        this.totalPages.set(response.totalPages);
+        this.hasMore.set(!response.last);
         this.loading.set(false);
         this.cdr.detectChanges();
 
-        this.posts().forEach((post) => this.checkLikeStatus(post.id));
+        const liked = posts.filter((post) => post.likedByMe).map((post) => post.id);
+        if (liked.length > 0) {
+          this.likedPosts.set(new Set([...this.likedPosts(), ...liked]));
+        }
       },
       error: (error) => {
         console.error('Error loading posts:', error);
@@ -85,20 +88,8 @@ export class PostFeedComponent implements OnInit {
     });
   }
 
-  checkLikeStatus(postId: string) {
-    this.socialService.getLikeStatus(postId).subscribe({
-      next: (status) => {
-        if (status.liked) {
-          // create a new Set to trigger change detection when using signals
-          this.likedPosts.set(new Set([...this.likedPosts(), postId]));
-        }
-      },
-      error: () => {},
-    });
-  }
-
   loadMore() {
-    if (this.page() < this.totalPages() - 1) {
+    if (this.hasMore()) {
       this.page.set(this.page() + 1);
       this.loadPosts();
     }
@@ -179,29 +170,18 @@ export class PostFeedComponent implements OnInit {
   toggleLike(postId: string, event: Event) {
     event.stopPropagation();
     const wasLiked = this.isLiked(postId);
-    this.socialService.toggleLike(postId).subscribe({
+    this.socialService.setLike(postId, !wasLiked).subscribe({
       next: (response) => {
-        // optimistic update: assume toggle succeeded
-        if (wasLiked) {
-          const newSet = new Set(this.likedPosts());
-          newSet.delete(postId);
-          this.likedPosts.set(newSet);
+        const newSet = new Set(this.likedPosts());
+        if (response.liked) {
+          newSet.add(postId);
         } else {
-          this.likedPosts.set(new Set([...this.likedPosts(), postId]));
+          newSet.delete(postId);
         }
+        this.likedPosts.set(newSet);
 
-        // update posts signal immutably: decrement if was liked, increment if wasn't
         this.posts.set(
-          this.posts().map((p) =>
-            p.id === postId
-              ? {
-                  ...p,
-                  likeCount: wasLiked
-                    ? Math.max((p.likeCount || 0) - 1, 0)
-                    : (p.likeCount || 0) + 1,
-                }
-              : p
-          )
+          this.posts().map((p) => (p.id === postId ? { ...p, likeCount: response.likeCount } : p))
         );
         this.cdr.detectChanges();
       },
@@ -215,6 +195,11 @@ export class PostFeedComponent implements OnInit {
     return this.likedPosts().has(postId);
   }
 
+  // The server answers each width with its nearest resized variant, or the original while none exist
+  thumbnailSrcset(url: string): string {
+    return [320, 640, 1280].map((width) => `${url}?w=${width} ${width}w`).join(', ');
+  }
+
   isVideo(url: string): boolean {
     return ['.mp4', '.webm', '.ogg', '.avi', '.mov', '.wmv', '.flv', '.mkv'].some((ext) =>
       url.toLowerCase().includes(ext)
@@ -7,6 +7,8 @@ export interface User {
   status: string;
   createdAt: string;
   updatedAt: string;
+  followerCount: number;
+  followingCount: number;
 }
 
 export interface LoginRequest {
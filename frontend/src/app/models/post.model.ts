@@ -8,6 +8,7 @@ export interface Post {
   mediaUrls: string[];
   likeCount: number;
   commentCount: number;
+  likedByMe: boolean;
   createdAt: string;
   updatedAt: string;
 }
@@ -45,3 +46,21 @@ export interface PageResponse<T> {
   numberOfElements: number;
   empty: boolean;
 }
+
+export interface SliceResponse<T> {
+  content: T[];
+  pageable: any;
+  last: boolean;
+  size: number;
+  number: number;
+  first: boolean;
+  numberOfElements: number;
+  empty: boolean;
+}
+
+export interface MediaUploadStatus {
+  uploadId: string;
+  offset: number;
+  size: number;
+  maxChunkSize: number;
+}
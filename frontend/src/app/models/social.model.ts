@@ -1,3 +1,5 @@
+import { User } from './auth.model';
+
 export interface LikeResponse {
   id: string;
   userId: string;
@@ -51,6 +53,10 @@ export interface NotificationResponse {
   referenceId: string;
   isRead: boolean;
   createdAt: string;
+  // Last activity folded into a grouped notification
+  updatedAt?: string;
+  actorCount: number;
+  actorIds: string[];
 }
 
 export interface PageResponse<T> {
@@ -60,3 +66,9 @@ export interface PageResponse<T> {
   size: number;
   number: number;
 }
+
+export interface FollowSuggestion {
+  user: User;
+  mutualCount: number;
+  followerCount: number;
+}
@@ -1,8 +1,9 @@
-import { Injectable } from '@angular/core';
+import { Injectable, NgZone } from '@angular/core';
 import { HttpClient, HttpParams } from '@angular/common/http';
-import { Observable, BehaviorSubject } from 'rxjs';
+import { Observable, BehaviorSubject, Subject } from 'rxjs';
 import { tap } from 'rxjs/operators';
 import { NotificationResponse, PageResponse } from '../models/social.model';
+import { AuthService } from './auth.service';
 
 @Injectable({
   providedIn: 'root',
@@ -11,9 +12,21 @@ export class NotificationService {
   private readonly API_URL = 'http://localhost:8080/api/notifications';
   private unreadCountSubject = new BehaviorSubject<number>(0);
   public unreadCount$ = this.unreadCountSubject.asObservable();
+  private notificationSubject = new Subject<NotificationResponse>();
+  public notification$ = this.notificationSubject.asObservable();
+  private eventSource: EventSource | null = null;
+  private reconnectTimer: ReturnType<typeof setTimeout> | null = null;
 
-  constructor(private http: HttpClient) {
-    this.loadUnreadCount();
+  constructor(private http: HttpClient, private authService: AuthService, private zone: NgZone) {
+    this.authService.currentUser$.subscribe((user) => {
+      if (user) {
+        this.loadUnreadCount();
+        this.openStream();
+      } else {
+        this.closeStream();
+        this.unreadCountSubject.next(0);
+      }
+    });
   }
 
   getNotifications(
@@ -49,4 +62,53 @@ export class NotificationService {
   refreshUnreadCount(): void {
     this.loadUnreadCount();
   }
+
+  // EventSource cannot send headers, so the stream is opened with a short-lived ticket in the URL
+  // instead of the login token. A ticket is only checked on connect, so once the browser's own
+  // reconnect fails on an expired one, a fresh ticket is fetched. The server sends the unread
+  // count on every connect.
+  private openStream(): void {
+    if (!this.authService.getToken() || typeof EventSource === 'undefined') {
+      return;
+    }
+    this.closeStream();
+    this.http.post<{ ticket: string }>(`${this.API_URL}/stream-ticket`, {}).subscribe({
+      next: ({ ticket }) => this.connect(ticket),
+      error: () => this.scheduleReconnect(),
+    });
+  }
+
+  private connect(ticket: string): void {
+    if (!this.authService.getToken()) {
+      return;
+    }
+    this.eventSource = new EventSource(`${this.API_URL}/stream?ticket=${encodeURIComponent(ticket)}`);
+    this.eventSource.onerror = () => {
+      if (this.eventSource?.readyState === EventSource.CLOSED) {
+        this.scheduleReconnect();
+      }
+    };
+    this.eventSource.addEventListener('unread-count', (event) => {
+      const data = JSON.parse((event as MessageEvent).data) as { unreadCount: number };
+      this.zone.run(() => this.unreadCountSubject.next(data.unreadCount));
+    });
+    this.eventSource.addEventListener('notification', (event) => {
+      const data = JSON.parse((event as MessageEvent).data) as NotificationResponse;
+      this.zone.run(() => this.notificationSubject.next(data));
+    });
+  }
+
+  private scheduleReconnect(): void {
+    this.closeStream();
+    this.reconnectTimer = setTimeout(() => this.openStream(), 5000);
+  }
+
+  private closeStream(): void {
+    if (this.reconnectTimer) {
+      clearTimeout(this.reconnectTimer);
+      this.reconnectTimer = null;
+    }
+    this.eventSource?.close();
+    this.eventSource = null;
+  }
 }
@@ -1,9 +1,16 @@
 import { Injectable } from '@angular/core';
 import { HttpClient, HttpParams } from '@angular/common/http';
-import { Observable } from 'rxjs';
-import { map } from 'rxjs/operators';
+import { Observable, of } from 'rxjs';
+import { map, retry, switchMap } from 'rxjs/operators';
 import { environment } from '../../environments/environment';
-import { Post, CreatePostRequest, UpdatePostRequest, PageResponse } from '../models/post.model';
+import {
+  Post,
+  CreatePostRequest,
+  UpdatePostRequest,
+  PageResponse,
+  SliceResponse,
+  MediaUploadStatus,
+} from '../models/post.model';
 import { ApiResponse } from '../models/auth.model';
 
 @Injectable({
@@ -14,11 +21,11 @@ export class PostService {
 
   constructor(private http: HttpClient) {}
 
-  getPosts(page: number = 0, size: number = 10): Observable<PageResponse<Post>> {
+  getPosts(page: number = 0, size: number = 10): Observable<SliceResponse<Post>> {
     const params = new HttpParams().set('page', page.toString()).set('size', size.toString());
 
     return this.http
-      .get<ApiResponse<PageResponse<Post>>>(this.apiUrl, { params })
+      .get<ApiResponse<SliceResponse<Post>>>(this.apiUrl, { params })
       .pipe(map((response) => response.data));
   }
 
@@ -62,6 +69,34 @@ export class PostService {
     return this.http.post(`${environment.apiUrl}/media/upload/${postId}`, formData);
   }
 
+  // Files above the multipart limit go up in resumable chunks; a failed chunk is re-sent, not the whole file
+  uploadMediaChunked(postId: string, file: File): Observable<string> {
+    const uploadsUrl = `${environment.apiUrl}/media/uploads`;
+    const request = { postId, fileName: file.name, contentType: file.type, size: file.size };
+    return this.http.post<ApiResponse<MediaUploadStatus>>(uploadsUrl, request).pipe(
+      switchMap((response) => this.sendChunks(`${uploadsUrl}/${response.data.uploadId}`, file, response.data)),
+      switchMap((uploadUrl) => this.http.post<ApiResponse<string>>(`${uploadUrl}/complete`, {})),
+      map((response) => response.data)
+    );
+  }
+
+  private sendChunks(uploadUrl: string, file: File, status: MediaUploadStatus): Observable<string> {
+    if (status.offset >= status.size) {
+      return of(uploadUrl);
+    }
+    const chunk = file.slice(status.offset, status.offset + status.maxChunkSize);
+    const params = new HttpParams().set('offset', status.offset.toString());
+    return this.http
+      .put<ApiResponse<MediaUploadStatus>>(uploadUrl, chunk, {
+        params,
+        headers: { 'Content-Type': 'application/octet-stream' },
+      })
+      .pipe(
+        retry({ count: 3, delay: 2000 }),
+        switchMap((response) => this.sendChunks(uploadUrl, file, response.data))
+      );
+  }
+
   deleteMedia(postId: string, mediaId: string): Observable<void> {
     return this.http.delete<void>(`${environment.apiUrl}/media/${mediaId}`);
   }
@@ -21,10 +21,22 @@ export class SocialService {
     return this.http.post<LikeStatusResponse>(`${this.API_URL}/posts/${postId}/likes`, {});
   }
 
+  // Idempotent: repeating the request (double clicks, retries) leaves the same state
+  setLike(postId: string, liked: boolean): Observable<LikeStatusResponse> {
+    const url = `${this.API_URL}/posts/${postId}/likes`;
+    return liked
+      ? this.http.put<LikeStatusResponse>(url, {})
+      : this.http.delete<LikeStatusResponse>(url);
+  }
+
   getLikeStatus(postId: string): Observable<LikeStatusResponse> {
     return this.http.get<LikeStatusResponse>(`${this.API_URL}/posts/${postId}/likes/status`);
   }
 
+  getLikeStatuses(postIds: string[]): Observable<Record<string, boolean>> {
+    return this.http.post<Record<string, boolean>>(`${this.API_URL}/likes/status`, { postIds });
+  }
+
   // Comment operations
   createComment(postId: string, request: CommentRequest): Observable<CommentResponse> {
     return this.http.post<CommentResponse>(`${this.API_URL}/posts/${postId}/comments`, request);
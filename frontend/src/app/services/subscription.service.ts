@@ -5,6 +5,7 @@ import {
   SubscriptionStatusResponse,
   SubscriptionResponse,
   PageResponse,
+  FollowSuggestion,
 } from '../models/social.model';
 
 @Injectable({
@@ -19,6 +20,11 @@ export class SubscriptionService {
     return this.http.post<SubscriptionStatusResponse>(`${this.API_URL}/${userId}`, {});
   }
 
+  getSuggestions(limit: number = 20): Observable<FollowSuggestion[]> {
+    const params = new HttpParams().set('limit', limit.toString());
+    return this.http.get<FollowSuggestion[]>(`${this.API_URL}/suggestions`, { params });
+  }
+
   getSubscriptionStatus(userId: string): Observable<SubscriptionStatusResponse> {
     return this.http.get<SubscriptionStatusResponse>(`${this.API_URL}/${userId}/status`);
   }